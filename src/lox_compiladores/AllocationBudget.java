@@ -0,0 +1,57 @@
+package lox_compiladores;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Orçamento de alocação de um script: soma uma estimativa do tamanho de tudo que o interpretador aloca
+// em nome dele (instâncias, campos novos, strings concatenadas, escopos de bloco e de chamada, closures
+// e métodos ligados) e para o script com um erro de execução ao passar do limite, antes que ele leve a
+// JVM inteira a uma sequência de GCs completos ou a um OutOfMemoryError.
+//
+// Não é uma cota de heap: conta o total alocado, não o que continua vivo, então um laço longo que só
+// cria lixo também esgota o orçamento, como esgotaria o Fuel. Cada thread desconta
+// de um crédito local (um long no interpretador) e só passa por aqui, num AtomicLong, a cada CHUNK bytes.
+// Perto do limite os créditos encolhem, e quem termina (tarefa, pedaço paralelo) devolve o que sobrou.
+final class AllocationBudget {
+    static final int CHUNK = 64 * 1024;
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    // Estimativas em bytes (JVM de 64 bits com ponteiros comprimidos), incluindo os mapas internos
+    static final int INSTANCE = 80;
+    static final int FIELD = 48;
+    static final int FRAME = 96;
+    static final int CLOSURE = 32;
+    private static final int STRING = 40;
+
+    private final long limit;
+    private final AtomicLong granted = new AtomicLong();
+
+    AllocationBudget(long limit) {
+        this.limit = limit;
+    }
+
+    static int string(String value) {
+        return STRING + value.length();
+    }
+
+    // Crédito novo para quem ficou devendo 'debt' bytes
+    long refill(long debt) {
+        while (true) {
+            long before = granted.get();
+            long used = before + debt;
+            if (used > limit) throw new RuntimeError(null, "Allocation budget exceeded.");
+            // Um dezesseis avos do que falta: várias threads ainda conseguem crédito perto do limite
+            long chunk = Math.min(CHUNK, (limit - used) / 16);
+            if (granted.compareAndSet(before, used + chunk)) return chunk;
+        }
+    }
+
+    // Devolve o crédito não gasto de um interpretador que terminou
+    void giveBack(long unused) {
+        if (unused > 0) granted.addAndGet(-unused);
+    }
+
+    // Bytes entregues aos interpretadores até agora (pode passar do usado real em até um CHUNK por thread)
+    long allocated() {
+        return granted.get();
+    }
+}
@@ -0,0 +1,71 @@
+package lox_compiladores;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Cache em disco de scripts já compilados (.loxc). A chave é o SHA-256 da versão do
+// interpretador, do formato do AstCodec e dos bytes do fonte, então qualquer mudança invalida.
+class AstCache {
+    private final Path directory;
+
+    AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".cache", "jlox");
+    }
+
+    String key(ByteBuffer source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((Lox.VERSION + "/" + AstCodec.FORMAT + "\n").getBytes());
+            digest.update(source.duplicate());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Lê a unidade do cache (mapeando o arquivo), ou null se não houver entrada válida
+    CompilationUnit load(String path, String key) {
+        Path file = directory.resolve(key + ".loxc");
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            AstCodec.Decoded decoded = AstCodec.decode(bytes);
+            CompilationUnit unit = new CompilationUnit(path);
+            unit.load(decoded);
+            return unit;
+        } catch (IOException | RuntimeException e) {
+            // Entrada corrompida ou de outro formato: ignora e recompila
+            return null;
+        }
+    }
+
+    // Grava num arquivo temporário e move, para nunca deixar uma entrada pela metade
+    void store(String key, CompilationUnit unit) {
+        try {
+            Files.createDirectories(directory);
+            byte[] bytes = AstCodec.encode(unit.statements, unit.locals, unit.diagnostics.warnings());
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, directory.resolve(key + ".loxc"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Sem cache não é erro; o script só vai ser compilado de novo na próxima vez
+        }
+    }
+}
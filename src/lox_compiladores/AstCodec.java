@@ -0,0 +1,539 @@
+package lox_compiladores;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Formato binário (.loxc) da AST já resolvida: tabela de strings (nomes internados e lexemas)
+// seguida dos nós em pré-ordem, cada um com uma tag e inteiros em base 128. Expressões resolvidas levam a distância
+// do escopo junto, então a leitura devolve a AST e a tabela de resolução prontas.
+final class AstCodec implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Void> {
+    static final int MAGIC = 0x4C4F5843; // "LOXC"
+    static final int FORMAT = 5;
+
+    private static final byte NULL = 0;
+    private static final byte BLOCK = 1, EXPRESSION = 2, FUNCTION = 3, IF = 4, PRINT = 5,
+            RETURN = 6, VAR = 7, WHILE = 8, CLASS = 9, IMPORT = 10;
+    private static final byte ASSIGN = 20, BINARY = 21, CALL = 22, GET = 23, SET = 24, LITERAL = 25,
+            GROUPING = 26, LOGICAL = 27, UNARY = 28, VARIABLE = 29, THIS = 30, SUPER = 31;
+
+    private static final byte NIL = 0, TRUE = 1, FALSE = 2, NUMBER = 3, STRING = 4;
+
+    private static final TokenType[] tokenTypes = TokenType.values();
+
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<Expr, Integer> locals;
+
+    private AstCodec(Map<Expr, Integer> locals) {
+        this.locals = locals;
+    }
+
+    // ---------------------------------------------------------------- escrita
+
+    static byte[] encode(List<Stmt> statements, Map<Expr, Integer> locals, List<String> warnings) {
+        AstCodec codec = new AstCodec(locals);
+        try {
+            codec.writeStrings(warnings);
+            codec.writeStatements(statements);
+
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT);
+            header.writeInt(codec.strings.size());
+            for (String text : codec.strings.keySet()) {
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                header.writeInt(utf8.length);
+                header.write(utf8);
+            }
+            codec.out.flush();
+            codec.bytes.writeTo(header);
+            header.flush();
+            return file.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeStrings(List<String> texts) throws IOException {
+        writeCount(texts.size());
+        for (String text : texts) writeString(text);
+    }
+
+    private void writeString(String text) throws IOException {
+        Integer index = strings.get(text);
+        if (index == null) {
+            index = strings.size();
+            strings.put(text, index);
+        }
+        writeCount(index);
+    }
+
+    // Inteiros não negativos em base 128 (1 byte para a maioria dos índices, linhas e contagens)
+    private void writeCount(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeStatements(List<Stmt> statements) throws IOException {
+        writeCount(statements.size());
+        for (Stmt statement : statements) write(statement);
+    }
+
+    private void write(Stmt stmt) throws IOException {
+        if (stmt == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        try {
+            stmt.accept(this);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(Expr expr) throws IOException {
+        if (expr == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        try {
+            expr.accept(this);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(Token token) throws IOException {
+        out.writeByte(token.type.ordinal());
+        writeString(token.lexeme);
+        writeCount(token.line);
+        writeValue(token.literal);
+    }
+
+    // Operadores e propriedades não guardam Token na AST: só o tipo (ou o nome) e a linha
+    private void writeOperator(TokenType operator, int line) throws IOException {
+        out.writeByte(operator.ordinal());
+        writeCount(line);
+    }
+
+    private void writeName(Symbol name, int line) throws IOException {
+        writeString(name.name);
+        writeCount(line);
+    }
+
+    private void writeTokens(List<Token> tokens) throws IOException {
+        writeCount(tokens.size());
+        for (Token token : tokens) write(token);
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NIL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean)value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(NUMBER);
+            out.writeDouble((Double)value);
+        } else {
+            out.writeByte(STRING);
+            writeString((String)value);
+        }
+    }
+
+    private void writeDepth(Expr expr) throws IOException {
+        Integer depth = locals.get(expr);
+        writeCount(depth == null ? 0 : depth + 1);
+    }
+
+    // Os visitors não podem lançar IOException, então ela atravessa embrulhada
+    private interface Body {
+        void run() throws IOException;
+    }
+
+    private Void node(byte tag, Body body) {
+        try {
+            out.writeByte(tag);
+            body.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        return node(BLOCK, () -> {
+            writeCount(stmt.line);
+            writeStatements(stmt.statements);
+        });
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        return node(EXPRESSION, () -> write(stmt.expression));
+    }
+
+    @Override
+    public Void visitFunctionStmt(Stmt.Function stmt) {
+        if (stmt.body() == null) throw new IllegalStateException("Can't encode a lazily parsed function body.");
+        return node(FUNCTION, () -> {
+            write(stmt.name);
+            writeTokens(stmt.params);
+            writeStatements(stmt.body());
+        });
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        return node(IF, () -> {
+            write(stmt.condition);
+            write(stmt.thenBranch);
+            write(stmt.elseBranch);
+        });
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        return node(PRINT, () -> write(stmt.expression));
+    }
+
+    @Override
+    public Void visitReturnStmt(Stmt.Return stmt) {
+        return node(RETURN, () -> {
+            write(stmt.keyword);
+            write(stmt.value);
+        });
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        return node(VAR, () -> {
+            write(stmt.name);
+            write(stmt.initializer);
+        });
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        return node(WHILE, () -> {
+            writeCount(stmt.line);
+            write(stmt.condition);
+            write(stmt.body);
+        });
+    }
+
+    @Override
+    public Void visitClassStmt(Stmt.Class stmt) {
+        return node(CLASS, () -> {
+            write(stmt.name);
+            out.writeBoolean(stmt.superclass != null);
+            if (stmt.superclass != null) write(stmt.superclass.name);
+            writeCount(stmt.methods.size());
+            for (Stmt.Function method : stmt.methods) write(method);
+        });
+    }
+
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        return node(IMPORT, () -> {
+            write(stmt.keyword);
+            write(stmt.path);
+        });
+    }
+
+    @Override
+    public Void evaluateAssignment(Expr.Assign expr) {
+        return node(ASSIGN, () -> {
+            write(expr.target);
+            write(expr.value);
+            writeDepth(expr);
+        });
+    }
+
+    @Override
+    public Void evaluateBinary(Expr.BinaryOp expr) {
+        return node(BINARY, () -> {
+            write(expr.left);
+            writeOperator(expr.operator, expr.line);
+            write(expr.right);
+        });
+    }
+
+    @Override
+    public Void evaluateCall(Expr.CallExpr expr) {
+        return node(CALL, () -> {
+            write(expr.callee);
+            writeCount(expr.line);
+            writeCount(expr.arguments.size());
+            for (Expr argument : expr.arguments) write(argument);
+        });
+    }
+
+    @Override
+    public Void evaluateGet(Expr.GetProp expr) {
+        return node(GET, () -> {
+            write(expr.object);
+            writeName(expr.name, expr.line);
+        });
+    }
+
+    @Override
+    public Void evaluateSet(Expr.SetProp expr) {
+        return node(SET, () -> {
+            write(expr.object);
+            writeName(expr.name, expr.line);
+            write(expr.value);
+        });
+    }
+
+    @Override
+    public Void evaluateLiteral(Expr.Value expr) {
+        return node(LITERAL, () -> writeValue(expr.value));
+    }
+
+    @Override
+    public Void evaluateGrouping(Expr.Group expr) {
+        return node(GROUPING, () -> write(expr.expression));
+    }
+
+    @Override
+    public Void evaluateLogical(Expr.LogicalOp expr) {
+        return node(LOGICAL, () -> {
+            write(expr.left);
+            writeOperator(expr.operator, expr.line);
+            write(expr.right);
+        });
+    }
+
+    @Override
+    public Void evaluateUnary(Expr.UnaryOp expr) {
+        return node(UNARY, () -> {
+            writeOperator(expr.operator, expr.line);
+            write(expr.right);
+        });
+    }
+
+    @Override
+    public Void evaluateVariable(Expr.VarRef expr) {
+        return node(VARIABLE, () -> {
+            write(expr.name);
+            writeDepth(expr);
+        });
+    }
+
+    @Override
+    public Void evaluateThis(Expr.ThisRef expr) {
+        return node(THIS, () -> {
+            write(expr.keyword);
+            writeDepth(expr);
+        });
+    }
+
+    @Override
+    public Void evaluateSuper(Expr.SuperCall expr) {
+        return node(SUPER, () -> {
+            write(expr.keyword);
+            write(expr.method);
+            writeDepth(expr);
+        });
+    }
+
+    // ---------------------------------------------------------------- leitura
+
+    // Resultado da leitura: a AST, a tabela de resolução e os avisos gravados na compilação
+    static final class Decoded {
+        final List<Stmt> statements;
+        final Map<Expr, Integer> locals;
+        final List<String> warnings;
+
+        private Decoded(List<Stmt> statements, Map<Expr, Integer> locals, List<String> warnings) {
+            this.statements = statements;
+            this.locals = locals;
+            this.warnings = warnings;
+        }
+    }
+
+    // Lança IllegalArgumentException se os bytes não forem um .loxc deste formato
+    static Decoded decode(ByteBuffer in) {
+        return new Reader(in).read();
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final Map<Expr, Integer> locals = new HashMap<>();
+        private String[] strings;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        Decoded read() {
+            if (in.remaining() < 12 || in.getInt() != MAGIC || in.getInt() != FORMAT) {
+                throw new IllegalArgumentException("Not a compiled Lox file.");
+            }
+            strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[in.getInt()];
+                in.get(utf8);
+                strings[i] = utf8.length == 0 ? "" : new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            List<String> warnings = new ArrayList<>();
+            int count = count();
+            for (int i = 0; i < count; i++) warnings.add(string());
+
+            List<Stmt> statements = statements();
+            return new Decoded(statements, locals, warnings);
+        }
+
+        private int count() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        private String string() {
+            return strings[count()];
+        }
+
+        private List<Stmt> statements() {
+            int count = count();
+            List<Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) statements.add(stmt());
+            return statements;
+        }
+
+        private Token token() {
+            TokenType type = tokenTypes[in.get()];
+            String lexeme = string();
+            int line = count();
+            return new Token(type, lexeme, value(), line);
+        }
+
+        private List<Token> tokens() {
+            int count = count();
+            List<Token> tokens = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) tokens.add(token());
+            return tokens;
+        }
+
+        private Object value() {
+            byte tag = in.get();
+            switch (tag) {
+                case NIL: return null;
+                case TRUE: return true;
+                case FALSE: return false;
+                case NUMBER: return in.getDouble();
+                case STRING: return string();
+                default: throw new IllegalArgumentException("Bad literal tag " + tag + ".");
+            }
+        }
+
+        private <T extends Expr> T resolved(T expr) {
+            int depth = count() - 1;
+            if (depth >= 0) locals.put(expr, depth);
+            return expr;
+        }
+
+        private Stmt stmt() {
+            byte tag = in.get();
+            switch (tag) {
+                case NULL: return null;
+                case BLOCK: {
+                    int line = count();
+                    return new Stmt.Block(statements(), line);
+                }
+                case EXPRESSION: return new Stmt.Expression(expr());
+                case FUNCTION: return function();
+                case IF: return new Stmt.If(expr(), stmt(), stmt());
+                case PRINT: return new Stmt.Print(expr());
+                case RETURN: return new Stmt.Return(token(), expr());
+                case VAR: return new Stmt.Var(token(), expr());
+                case WHILE: {
+                    int line = count();
+                    return new Stmt.While(expr(), stmt(), line);
+                }
+                case CLASS: {
+                    Token name = token();
+                    Expr.Variable superclass = in.get() != 0 ? new Expr.Variable(token()) : null;
+                    int count = count();
+                    Stmt.Function[] methods = new Stmt.Function[count];
+                    for (int i = 0; i < count; i++) methods[i] = (Stmt.Function)stmt();
+                    return new Stmt.Class(name, superclass, Arrays.asList(methods));
+                }
+                case IMPORT: return new Stmt.Import(token(), token());
+                default: throw new IllegalArgumentException("Bad statement tag " + tag + ".");
+            }
+        }
+
+        private Stmt.Function function() {
+            Token name = token();
+            List<Token> params = tokens();
+            return new Stmt.Function(name, params, statements());
+        }
+
+        private Expr expr() {
+            byte tag = in.get();
+            switch (tag) {
+                case NULL: return null;
+                case ASSIGN: return resolved(new Expr.Assign(token(), expr()));
+                case BINARY: {
+                    Expr left = expr();
+                    TokenType operator = tokenTypes[in.get()];
+                    return new Expr.BinaryOp(left, operator, count(), expr());
+                }
+                case CALL: {
+                    Expr callee = expr();
+                    int line = count();
+                    int count = count();
+                    List<Expr> arguments = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) arguments.add(expr());
+                    return new Expr.CallExpr(callee, line, arguments);
+                }
+                case GET: {
+                    Expr object = expr();
+                    Symbol name = Symbol.intern(string());
+                    return new Expr.GetProp(object, name, count());
+                }
+                case SET: {
+                    Expr object = expr();
+                    Symbol name = Symbol.intern(string());
+                    return new Expr.SetProp(object, name, count(), expr());
+                }
+                case LITERAL: return new Expr.Value(value());
+                case GROUPING: return new Expr.Group(expr());
+                case LOGICAL: {
+                    Expr left = expr();
+                    TokenType operator = tokenTypes[in.get()];
+                    return new Expr.LogicalOp(left, operator, count(), expr());
+                }
+                case UNARY: {
+                    TokenType operator = tokenTypes[in.get()];
+                    return new Expr.UnaryOp(operator, count(), expr());
+                }
+                case VARIABLE: return resolved(new Expr.VarRef(token()));
+                case THIS: return resolved(new Expr.ThisRef(token()));
+                case SUPER: return resolved(new Expr.SuperCall(token(), token()));
+                default: throw new IllegalArgumentException("Bad expression tag " + tag + ".");
+            }
+        }
+    }
+}
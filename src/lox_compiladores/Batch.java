@@ -0,0 +1,200 @@
+package lox_compiladores;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// --batch=diretório|glob: roda todos os scripts num processo só, em vários workers. Cada script tem
+// globais próprios (um LoxContext) e a saída e os erros capturados; no fim sai um resumo com tempo e
+// situação de cada um e a vazão. Com --batch-output=dir a saída capturada vai para dir/<script>.out e .err,
+// e com --fuel e --allocations um script que não termina ou que aloca demais para sozinho em vez de
+// prender o worker ou a memória do processo.
+final class Batch {
+    private static final String OK = "ok", COMPILE_ERROR = "compile error", RUNTIME_ERROR = "runtime error",
+            UNREADABLE = "unreadable", CRASHED = "crashed";
+
+    private final int workers;
+    private final long fuel;
+    private final long allocations;
+    private final Path output;
+
+    private static final class Result {
+        final Path script;
+        final String status;
+        final long nanos;
+        final String out;
+        final String err;
+
+        Result(Path script, String status, long nanos, String out, String err) {
+            this.script = script;
+            this.status = status;
+            this.nanos = nanos;
+            this.out = out;
+            this.err = err;
+        }
+    }
+
+    Batch(int workers, long fuel, long allocations, Path output) {
+        this.workers = workers;
+        this.fuel = fuel;
+        this.allocations = allocations;
+        this.output = output;
+    }
+
+    // Devolve o código de saída: 65 se algum script não compilou (ou não foi lido), 70 se algum falhou
+    // em execução, 0 se todos rodaram
+    int run(String pattern) throws IOException {
+        List<Path> scripts = scripts(pattern);
+        if (scripts.isEmpty()) {
+            System.err.println("No scripts match '" + pattern + "'.");
+            return 66;
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+                task -> new Thread(null, task, "jlox-batch-" + count.incrementAndGet(), Daemon.STACK_SIZE));
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Path script : scripts) futures.add(pool.submit(() -> execute(script)));
+
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> future : futures) results.add(future.get());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Batch worker failed.", e);
+        } finally {
+            pool.shutdown();
+        }
+        long wall = System.nanoTime() - start;
+
+        if (output != null) save(results, commonRoot(pattern));
+        return summarize(results, wall);
+    }
+
+    private Result execute(Path script) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(out, false, StandardCharsets.UTF_8);
+        PrintStream errStream = new PrintStream(err, false, StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        String status;
+        try {
+            LoxProgram program = LoxProgram.compile(Files.readString(script), script.getParent());
+            for (String warning : program.warnings()) outStream.println(warning);
+            if (!program.compiled()) {
+                for (String error : program.errors()) errStream.println(error);
+                status = COMPILE_ERROR;
+            } else {
+                LoxContext context = program.newContext(outStream, errStream);
+                context.limitFuel(fuel);
+                context.limitAllocations(allocations);
+                status = context.run() == 0 ? OK : RUNTIME_ERROR;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            errStream.println("Could not read '" + script + "'.");
+            status = UNREADABLE;
+        } catch (StackOverflowError e) {
+            // Um script não derruba o lote
+            errStream.println("Stack overflow.");
+            status = CRASHED;
+        }
+        long nanos = System.nanoTime() - start;
+
+        outStream.flush();
+        errStream.flush();
+        // Sem --batch-output a saída é descartada aqui: com milhares de scripts ela não cabe na memória
+        String captured = output == null ? "" : out.toString(StandardCharsets.UTF_8);
+        return new Result(script, status, nanos, captured, err.toString(StandardCharsets.UTF_8));
+    }
+
+    // Um diretório roda todos os .lox dentro dele; qualquer outra coisa é um glob ("testes/**/*.lox"),
+    // procurado a partir da parte do caminho que vem antes do primeiro curinga
+    static List<Path> scripts(String pattern) throws IOException {
+        Path directory = Paths.get(pattern);
+        PathMatcher matcher;
+        if (Files.isDirectory(directory)) {
+            matcher = path -> path.toString().endsWith(".lox");
+        } else {
+            directory = commonRoot(pattern);
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        }
+        if (!Files.isDirectory(directory)) return List.of();
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path commonRoot(String pattern) {
+        Path path = Paths.get(pattern);
+        if (Files.isDirectory(path)) return path;
+        int wildcard = firstWildcard(pattern);
+        int separator = pattern.lastIndexOf('/', wildcard);
+        return Paths.get(separator < 0 ? "" : pattern.substring(0, separator + 1));
+    }
+
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) return i;
+        }
+        return pattern.length();
+    }
+
+    private void save(List<Result> results, Path root) throws IOException {
+        for (Result result : results) {
+            Path target = output.resolve(root.relativize(result.script).toString());
+            Files.createDirectories(target.getParent());
+            Files.writeString(target.resolveSibling(target.getFileName() + ".out"), result.out);
+            Files.writeString(target.resolveSibling(target.getFileName() + ".err"), result.err);
+        }
+    }
+
+    // Tabela por script, erros dos que falharam e totais. Sem --batch-output, a saída dos scripts
+    // que passaram não aparece
+    private int summarize(List<Result> results, long wall) {
+        int passed = 0, compileErrors = 0, runtimeErrors = 0;
+        long busy = 0;
+        for (Result result : results) {
+            System.out.printf("%-14s %9.2f ms  %s%n", result.status, result.nanos / 1e6, result.script);
+            busy += result.nanos;
+            switch (result.status) {
+                case OK: passed++; break;
+                case RUNTIME_ERROR: case CRASHED: runtimeErrors++; break;
+                default: compileErrors++; break;
+            }
+        }
+        for (Result result : results) {
+            if (result.status.equals(OK) || result.err.isEmpty()) continue;
+            for (String line : result.err.split("\n")) System.err.println(result.script + ": " + line);
+        }
+
+        double seconds = wall / 1e9;
+        System.out.printf("%d scripts: %d ok, %d failed to compile, %d failed at runtime%n",
+                results.size(), passed, compileErrors, runtimeErrors);
+        System.out.printf("wall %.2f s, script time %.2f s on %d workers, %.1f scripts/s%n",
+                seconds, busy / 1e9, workers, results.size() / seconds);
+
+        if (compileErrors > 0) return 65;
+        return runtimeErrors > 0 ? 70 : 0;
+    }
+}
@@ -0,0 +1,304 @@
+package lox_compiladores;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Scanner que trabalha direto sobre os bytes UTF-8 (normalmente um arquivo mapeado em memória).
+// Não materializa o código-fonte como String: os tokens guardam offset/tamanho, nomes viram
+// Symbols e números são convertidos a partir dos próprios bytes.
+public class ByteScanner {
+    private final ByteBuffer source;
+    private final int length;
+    private final Diagnostics diagnostics;
+    private TokenBuffer tokens;
+    private int start = 0;
+    private int current = 0;
+    private int line = 1;
+
+    // Tabela local de nomes: acha o Symbol pelos bytes sem criar String para nomes repetidos
+    private Symbol[] names = new Symbol[1024];
+    private int nameCount = 0;
+    private byte[] scratch = new byte[64];
+
+    private static final Map<Symbol, TokenType> keywords = new HashMap<>();
+    private static final double[] powersOfTen = new double[23];
+
+    static {
+        for (Map.Entry<String, TokenType> keyword : Scanner.keywords.entrySet()) {
+            keywords.put(Symbol.intern(keyword.getKey()), keyword.getValue());
+        }
+
+        double power = 1;
+        for (int i = 0; i < powersOfTen.length; i++) {
+            powersOfTen[i] = power;
+            power *= 10;
+        }
+    }
+
+    public ByteScanner(ByteBuffer source) {
+        this(source, Lox.diagnostics);
+    }
+
+    ByteScanner(ByteBuffer source, Diagnostics diagnostics) {
+        this.source = source;
+        this.length = source.limit();
+        this.diagnostics = diagnostics;
+        this.tokens = new TokenBuffer(this::text, Math.max(256, length / 4));
+    }
+
+    private String text(int offset, int size) {
+        return copy(source, offset, size, StandardCharsets.ISO_8859_1);
+    }
+
+    public TokenBuffer scan() {
+        LoxEvents.Compile event = LoxEvents.ENABLED ? new LoxEvents.Compile(LoxEvents.Compile.SCANNER) : null;
+        if (event != null) event.begin();
+        while (!isAtEnd()) {
+            start = current;
+            scanToken();
+        }
+        tokens.add(TokenType.EOF, current, 0, line);
+        if (event != null) event.commit();
+        return tokens;
+    }
+
+    public List<Token> scanTokens() {
+        return scan().toList();
+    }
+
+    // Entrega os tokens em pedaços de exatamente chunkSize tokens (o último pode ser menor e termina no EOF)
+    void scan(int chunkSize, Consumer<TokenBuffer> sink) {
+        tokens = new TokenBuffer(this::text, chunkSize);
+        while (!isAtEnd()) {
+            start = current;
+            scanToken();
+            if (tokens.size() == chunkSize) {
+                sink.accept(tokens);
+                tokens = new TokenBuffer(this::text, chunkSize);
+            }
+        }
+        tokens.add(TokenType.EOF, current, 0, line);
+        sink.accept(tokens);
+    }
+
+    private boolean isAtEnd() {
+        return current >= length;
+    }
+
+    private void scanToken() {
+        byte c = advance();
+        switch (c) {
+            case '(': addToken(TokenType.LEFT_PAREN); break;
+            case ')': addToken(TokenType.RIGHT_PAREN); break;
+            case '{': addToken(TokenType.LEFT_BRACE); break;
+            case '}': addToken(TokenType.RIGHT_BRACE); break;
+            case ',': addToken(TokenType.COMMA); break;
+            case '.': addToken(TokenType.DOT); break;
+            case '-': addToken(TokenType.MINUS); break;
+            case '+': addToken(TokenType.PLUS); break;
+            case ';': addToken(TokenType.SEMICOLON); break;
+            case '*': addToken(TokenType.STAR); break;
+            case '!': addToken(match('=') ? TokenType.BANG_EQUAL : TokenType.BANG); break;
+            case '=': addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL); break;
+            case '<': addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS); break;
+            case '>': addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER); break;
+            case '/':
+                if (match('/')) {
+                    while (peek() != '\n' && !isAtEnd()) advance();
+                } else {
+                    addToken(TokenType.SLASH);
+                }
+                break;
+            case ' ':
+            case '\r':
+            case '\t':
+                break;
+            case '\n':
+                line++;
+                break;
+            case '"': string(); break;
+            default:
+                if (isDigit(c)) {
+                    number();
+                } else if (isAlpha(c)) {
+                    identifier();
+                } else {
+                    unexpected(c);
+                }
+                break;
+        }
+    }
+
+    private byte advance() {
+        return source.get(current++);
+    }
+
+    private void addToken(TokenType type) {
+        tokens.add(type, start, current - start, line);
+    }
+
+    private boolean match(char expected) {
+        if (isAtEnd()) return false;
+        if (source.get(current) != expected) return false;
+        current++;
+        return true;
+    }
+
+    private byte peek() {
+        if (isAtEnd()) return '\0';
+        return source.get(current);
+    }
+
+    private byte peekNext() {
+        if (current + 1 >= length) return '\0';
+        return source.get(current + 1);
+    }
+
+    private void string() {
+        while (peek() != '"' && !isAtEnd()) {
+            if (peek() == '\n') line++;
+            advance();
+        }
+
+        if (isAtEnd()) {
+            diagnostics.error(line, "Unterminated string.");
+            return;
+        }
+
+        advance(); // Consome o " de fechamento
+
+        String value = decode(start + 1, current - start - 2, StandardCharsets.UTF_8);
+        tokens.addLiteral(TokenType.STRING, value, start, current - start, line);
+    }
+
+    private void number() {
+        while (isDigit(peek())) advance();
+
+        if (peek() == '.' && isDigit(peekNext())) {
+            advance(); // Consome o .
+            while (isDigit(peek())) advance();
+        }
+
+        tokens.addLiteral(TokenType.NUMBER, parseNumber(start, current), start, current - start, line);
+    }
+
+    // Caminho rápido: até 15 dígitos e até 22 casas decimais cabem exatos num double,
+    // então uma única divisão já dá o valor corretamente arredondado
+    private double parseNumber(int from, int to) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            byte b = source.get(i);
+            if (b == '.') {
+                fraction = true;
+                continue;
+            }
+            if (++digits > 15) return slowParse(from, to);
+            mantissa = mantissa * 10 + (b - '0');
+            if (fraction) scale++;
+        }
+        if (scale >= powersOfTen.length) return slowParse(from, to);
+        return mantissa / powersOfTen[scale];
+    }
+
+    private double slowParse(int from, int to) {
+        return Double.parseDouble(decode(from, to - from, StandardCharsets.ISO_8859_1));
+    }
+
+    private void identifier() {
+        int hash = source.get(start);
+        while (isAlphaNumeric(peek())) {
+            hash = 31 * hash + advance();
+        }
+
+        Symbol name = symbolAt(start, current - start, hash);
+        TokenType type = keywords.get(name);
+        if (type == null) type = TokenType.IDENTIFIER;
+        if (type == TokenType.IDENTIFIER || type == TokenType.THIS || type == TokenType.SUPER) {
+            tokens.addName(type, name, start, current - start, line);
+        } else {
+            tokens.add(type, start, current - start, line);
+        }
+    }
+
+    // O hash é o mesmo de String.hashCode, então dá para comparar direto com o do Symbol
+    private Symbol symbolAt(int offset, int size, int hash) {
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            Symbol symbol = names[slot];
+            if (symbol == null) {
+                symbol = Symbol.intern(decode(offset, size, StandardCharsets.ISO_8859_1));
+                names[slot] = symbol;
+                if (++nameCount * 2 > names.length) growNames();
+                return symbol;
+            }
+            if (symbol.hashCode() == hash && sameText(symbol.name, offset, size)) return symbol;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean sameText(String name, int offset, int size) {
+        if (name.length() != size) return false;
+        for (int i = 0; i < size; i++) {
+            if (name.charAt(i) != source.get(offset + i)) return false;
+        }
+        return true;
+    }
+
+    private void growNames() {
+        Symbol[] old = names;
+        names = new Symbol[old.length * 2];
+        int mask = names.length - 1;
+        for (Symbol symbol : old) {
+            if (symbol == null) continue;
+            int slot = symbol.hashCode() & mask;
+            while (names[slot] != null) slot = (slot + 1) & mask;
+            names[slot] = symbol;
+        }
+    }
+
+    private void unexpected(byte lead) {
+        // Bytes fora do ASCII: junta a sequência UTF-8 inteira para a mensagem sair igual ao Scanner
+        int size = 1;
+        if ((lead & 0xE0) == 0xC0) size = 2;
+        else if ((lead & 0xF0) == 0xE0) size = 3;
+        else if ((lead & 0xF8) == 0xF0) size = 4;
+        size = Math.min(size, length - start);
+        current = start + size;
+        String character = decode(start, size, StandardCharsets.UTF_8);
+        diagnostics.error(line, "Unexpected character: '" + character + "'");
+    }
+
+    private String decode(int offset, int size, Charset charset) {
+        if (scratch.length < size) scratch = new byte[Math.max(size, scratch.length * 2)];
+        source.get(offset, scratch, 0, size);
+        return new String(scratch, 0, size, charset);
+    }
+
+    // Cópia independente do buffer de rascunho, para quando o TokenBuffer pede o texto de um token
+    private static String copy(ByteBuffer source, int offset, int size, Charset charset) {
+        byte[] bytes = new byte[size];
+        source.get(offset, bytes, 0, size);
+        return new String(bytes, charset);
+    }
+
+    private boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isAlpha(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private boolean isAlphaNumeric(byte c) {
+        return isAlpha(c) || isDigit(c);
+    }
+}
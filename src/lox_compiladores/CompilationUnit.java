@@ -0,0 +1,59 @@
+package lox_compiladores;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Um arquivo compilado de forma independente: seus próprios erros e sua própria tabela de resolução,
+// sem tocar em estado global do Lox, para que várias unidades possam compilar ao mesmo tempo
+class CompilationUnit {
+    final String path;
+    final Diagnostics diagnostics = new Diagnostics();
+    final Map<Expr, Integer> locals = new HashMap<>();
+    List<Stmt> statements;
+
+    CompilationUnit(String path) {
+        this.path = path;
+    }
+
+    void compile() {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            compile(bytes);
+        } catch (IOException e) {
+            diagnostics.fatal("Could not read '" + path + "'.");
+        }
+    }
+
+    void compile(ByteBuffer source) {
+        TokenBuffer tokens = new ByteScanner(source, diagnostics).scan();
+        if (diagnostics.hadError()) return;
+
+        Parser parser = new Parser(tokens, diagnostics);
+        List<Stmt> parsed = parser.parse();
+        if (diagnostics.hadError()) return;
+
+        Resolver resolver = new Resolver(locals, diagnostics);
+        resolver.resolve(parsed);
+        if (diagnostics.hadError()) return;
+
+        statements = parsed;
+    }
+
+    // Preenche a unidade com o que veio do cache (.loxc), avisos inclusos
+    void load(AstCodec.Decoded decoded) {
+        for (String warning : decoded.warnings) diagnostics.warning(warning);
+        locals.putAll(decoded.locals);
+        statements = decoded.statements;
+    }
+
+    boolean compiled() {
+        return statements != null;
+    }
+}
@@ -0,0 +1,265 @@
+package lox_compiladores;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Processo jlox que fica de pé atendendo execuções por um socket Unix (--daemon=socket), para não pagar
+// a subida da JVM e o JIT frio a cada script. O cliente (--connect=socket) manda o caminho do script e
+// recebe de volta, à medida que saem, a saída, os erros e o código de saída.
+//
+// Protocolo: o pedido é um int com o tamanho e o caminho absoluto em UTF-8. A resposta é uma sequência
+// de quadros (tipo, tamanho, bytes): OUT e ERR com texto, e por último EXIT com o código (um int).
+final class Daemon {
+    private static final byte OUT = 'o', ERR = 'e', EXIT = 'x';
+    // Códigos de sysexits, como o resto do jlox
+    private static final int DATA_ERROR = 65, NO_INPUT = 66, UNAVAILABLE = 69, SOFTWARE = 70, TEMPORARY_FAILURE = 75;
+    // Maior caminho aceito num pedido, em bytes (o PATH_MAX do Linux)
+    private static final int PATH_MAX = 4096;
+    // Pedidos aceitos ao mesmo tempo por vaga de CPU; passou disso o daemon responde ocupado
+    private static final int REQUESTS_PER_SLOT = 5;
+    // Prazo para um cliente recusado mandar o pedido, em segundos; depois disso a conexão é fechada
+    private static final long REFUSE_TIMEOUT = 2;
+    // Pilha dos workers: o interpretador é recursivo, então o padrão de 1 MB é pouco para scripts fundos
+    static final long STACK_SIZE = 16L << 20;
+
+    // Programas já compilados, por caminho; valem enquanto o arquivo e os módulos não mudarem
+    private final Map<Path, Compiled> programs = new ConcurrentHashMap<>();
+    // Uma thread por pedido aceito, mas só 'slots' delas executam Lox ao mesmo tempo, revezando a cada
+    // quantum de combustível: um script longo (ou que não termina) não atrasa os curtos que chegam depois
+    private final ThreadPoolExecutor workers;
+    private final Semaphore slots;
+    private final long fuel;
+    private final long allocations;
+
+    private static final class Compiled {
+        final FileTime modified;
+        final long size;
+        final LoxProgram program;
+
+        Compiled(FileTime modified, long size, LoxProgram program) {
+            this.modified = modified;
+            this.size = size;
+            this.program = program;
+        }
+    }
+
+    Daemon(int slots, long fuel, long allocations) {
+        AtomicInteger count = new AtomicInteger();
+        int threads = slots * REQUESTS_PER_SLOT;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                task -> new Thread(null, task, "jlox-worker-" + count.incrementAndGet(), STACK_SIZE));
+        this.slots = new Semaphore(slots, true);
+        this.fuel = fuel;
+        this.allocations = allocations;
+    }
+
+    // Atende até o processo ser morto; o arquivo do socket é removido na saída
+    void serve(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException e) {
+                    // O processo está saindo de qualquer jeito
+                }
+            }));
+            System.out.println("jlox daemon listening on " + socket + " with " + slots.availablePermits()
+                    + " workers for up to " + workers.getCorePoolSize() + " requests.");
+
+            while (true) {
+                SocketChannel client = server.accept();
+                try {
+                    workers.execute(() -> handle(client));
+                } catch (RejectedExecutionException e) {
+                    // Fora da thread que aceita: um cliente que conecta e não manda nada não trava o accept
+                    Thread.ofVirtual().name("jlox-refuse").start(() -> refuse(client));
+                }
+            }
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            Connection connection = new Connection(client);
+            String path;
+            try {
+                path = connection.request();
+            } catch (EOFException e) {
+                return;
+            }
+            connection.exit(execute(Paths.get(path), connection));
+        } catch (IOException e) {
+            // O cliente foi embora ou mandou um pedido inválido; não há para quem responder
+        }
+    }
+
+    private int execute(Path path, Connection connection) {
+        PrintStream out = connection.stream(OUT);
+        PrintStream err = connection.stream(ERR);
+
+        LoxProgram program;
+        try {
+            program = program(path);
+        } catch (IOException e) {
+            err.println("Could not read '" + path + "'.");
+            return NO_INPUT;
+        }
+
+        for (String warning : program.warnings()) out.println(warning);
+        if (!program.compiled()) {
+            for (String error : program.errors()) err.println(error);
+            return DATA_ERROR;
+        }
+        // Contexto novo a cada pedido: globais, módulos executados e erros não vazam entre execuções
+        LoxContext context = program.newContext(out, err);
+        context.limitFuel(fuel);
+        context.limitAllocations(allocations);
+        context.shareCpu(slots);
+        int status;
+        try {
+            status = context.run();
+        } catch (StackOverflowError e) {
+            // Recursão sem fim num script não derruba o worker: vira erro de execução, como no --batch
+            err.println("Stack overflow.");
+            status = SOFTWARE;
+        }
+        out.flush();
+        err.flush();
+        return status;
+    }
+
+    private LoxProgram program(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Compiled cached = programs.get(path);
+        if (cached != null && cached.modified.equals(attributes.lastModifiedTime())
+                && cached.size == attributes.size() && !cached.program.modulesChanged()) {
+            return cached.program;
+        }
+        // Dois pedidos do mesmo arquivo novo podem compilar ao mesmo tempo; fica o último, tanto faz
+        LoxProgram program = LoxProgram.compile(Files.readString(path), path.getParent());
+        programs.put(path, new Compiled(attributes.lastModifiedTime(), attributes.size(), program));
+        return program;
+    }
+
+    // Todas as threads ocupadas: responde numa virtual thread, sem ocupar worker. O pedido é lido mesmo
+    // assim; fechar o socket com dados não lidos derruba a conexão antes do cliente ver a resposta.
+    // A leitura tem prazo: fechar o canal solta a thread parada nela
+    private static void refuse(SocketChannel client) {
+        CompletableFuture.delayedExecutor(REFUSE_TIMEOUT, TimeUnit.SECONDS).execute(() -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // Já fechado
+            }
+        });
+        try (client) {
+            Connection connection = new Connection(client);
+            connection.request();
+            connection.stream(ERR).println("jlox daemon is busy, try again later.");
+            connection.exit(TEMPORARY_FAILURE);
+        } catch (IOException e) {
+            // Nada a fazer
+        }
+    }
+
+    // Lado do cliente: manda o script e repassa os quadros até o código de saída
+    static int connect(Path socket, String script) {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            byte[] path = Paths.get(script).toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+            request.writeInt(path.length);
+            request.write(path);
+            request.flush();
+
+            DataInputStream response = new DataInputStream(Channels.newInputStream(channel));
+            while (true) {
+                byte kind = response.readByte();
+                byte[] payload = new byte[response.readInt()];
+                response.readFully(payload);
+                if (kind == EXIT) {
+                    System.out.flush();
+                    return ByteBuffer.wrap(payload).getInt();
+                }
+                PrintStream target = kind == ERR ? System.err : System.out;
+                target.write(payload);
+                target.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not reach jlox daemon at '" + socket + "'.");
+            return UNAVAILABLE;
+        }
+    }
+
+    // Uma conexão atendida: lê o pedido e escreve os quadros. Saída e erros podem vir de várias
+    // threads (tarefas do script), então cada quadro sai inteiro sob o lock da conexão.
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final DataOutputStream output;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.output = new DataOutputStream(Channels.newOutputStream(channel));
+        }
+
+        String request() throws IOException {
+            DataInputStream input = new DataInputStream(Channels.newInputStream(channel));
+            int length = input.readInt();
+            if (length < 0 || length > PATH_MAX) throw new IOException("Invalid request length " + length + ".");
+            byte[] path = new byte[length];
+            input.readFully(path);
+            return new String(path, StandardCharsets.UTF_8);
+        }
+
+        synchronized void frame(byte kind, byte[] bytes, int length) throws IOException {
+            output.writeByte(kind);
+            output.writeInt(length);
+            output.write(bytes, 0, length);
+            output.flush();
+        }
+
+        void exit(int status) throws IOException {
+            frame(EXIT, ByteBuffer.allocate(4).putInt(status).array(), 4);
+        }
+
+        // Com autoflush, cada println vira um quadro: o cliente vê a saída enquanto o script roda
+        PrintStream stream(byte kind) {
+            OutputStream frames = new ByteArrayOutputStream() {
+                @Override
+                public synchronized void flush() throws IOException {
+                    if (count == 0) return;
+                    frame(kind, buf, count);
+                    reset();
+                }
+            };
+            return new PrintStream(frames, true, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package lox_compiladores;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Destino dos erros e avisos de compilação de uma unidade (um arquivo, uma linha do REPL...).
+// Pode imprimir na hora ou acumular para imprimir depois, na ordem em que foram gerados.
+// Tarefas e pedaços paralelos escrevem no mesmo objeto ao mesmo tempo: quem mexe nas listas sincroniza.
+class Diagnostics {
+    private final PrintStream errors;
+    private final PrintStream warnings;
+    private final List<String> bufferedErrors = new ArrayList<>();
+    private final List<String> bufferedWarnings = new ArrayList<>();
+    private volatile boolean hadError = false;
+    private volatile boolean hadRuntimeError = false;
+    // Módulos cujos erros e avisos já vieram para cá (ver Module.await)
+    private final Set<Module> modules = ConcurrentHashMap.newKeySet();
+
+    // Acumula tudo; nada é impresso até flush
+    Diagnostics() {
+        this(null, null);
+    }
+
+    Diagnostics(PrintStream errors, PrintStream warnings) {
+        this.errors = errors;
+        this.warnings = warnings;
+    }
+
+    void error(int line, String message) {
+        report(line, "", message);
+    }
+
+    void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else if (token.type == TokenType.STRING) {
+            report(token.line, " at '\"" + token.lexeme + "\"'", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+
+    synchronized void warning(String message) {
+        if (warnings != null) {
+            warnings.println(message);
+        } else {
+            bufferedWarnings.add(message);
+        }
+    }
+
+    void report(int line, String where, String message) {
+        errorLine("[line " + line + "] Error" + where + ": " + message);
+    }
+
+    synchronized void errorLine(String text) {
+        if (errors != null) {
+            errors.println(text);
+        } else {
+            bufferedErrors.add(text);
+        }
+        hadError = true;
+    }
+
+    // Repassa os erros acumulados para outro sink; os avisos ficam para trás
+    synchronized void forwardErrors(Diagnostics target) {
+        for (String error : bufferedErrors) target.errorLine(error);
+        bufferedErrors.clear();
+    }
+
+    // Repassa erros e avisos acumulados para outro sink, cada linha com o prefixo dado. Não esvazia este:
+    // as mensagens de um módulo em cache são repassadas a cada programa que o importa
+    synchronized void forward(Diagnostics target, String prefix) {
+        for (String warning : bufferedWarnings) target.warning(prefix + warning);
+        for (String error : bufferedErrors) target.errorLine(prefix + error.replace("\n", "\n" + prefix));
+    }
+
+    // true na primeira vez que 'module' é reportado aqui
+    boolean firstReport(Module module) {
+        return modules.add(module);
+    }
+
+    // Erro de execução, no mesmo formato do Lox.runtimeError
+    synchronized void runtimeError(RuntimeError error) {
+        LoxEvents.runtimeError(error);
+        String text = error.getMessage() + "\n[line " + (error.token != null ? error.token.line : 0) + "]";
+        if (errors != null) {
+            errors.println(text);
+        } else {
+            bufferedErrors.add(text);
+        }
+        hadRuntimeError = true;
+    }
+
+    // Problema fora do código-fonte (arquivo ilegível, por exemplo)
+    synchronized void fatal(String message) {
+        if (errors != null) {
+            errors.println("Error: " + message);
+        } else {
+            bufferedErrors.add("Error: " + message);
+        }
+        hadError = true;
+    }
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    // As listas em si, sem cópia: só para quem compila, antes de haver tarefas escrevendo aqui
+    List<String> errors() {
+        return bufferedErrors;
+    }
+
+    List<String> warnings() {
+        return bufferedWarnings;
+    }
+
+    void flush(PrintStream errors, PrintStream warnings) {
+        flush(errors, warnings, "");
+    }
+
+    // Cada linha sai com o prefixo dado (o caminho do arquivo, quando há várias unidades)
+    synchronized void flush(PrintStream errors, PrintStream warnings, String prefix) {
+        for (String warning : bufferedWarnings) warnings.println(prefix + warning);
+        for (String error : bufferedErrors) errors.println(prefix + error.replace("\n", "\n" + prefix));
+        bufferedWarnings.clear();
+        bufferedErrors.clear();
+    }
+}
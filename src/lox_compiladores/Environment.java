@@ -2,9 +2,13 @@ package lox_compiladores;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Environment {
-    private final Map<String, Object> values = new HashMap<>();
+    // Globais e closures podem ser usados por várias tarefas (spawn) ao mesmo tempo, então o mapa é
+    // concorrente; ele não aceita null, e nil fica guardado como NIL
+    private static final Object NIL = new Object();
+    private final Map<Symbol, Object> values = new ConcurrentHashMap<>();
     final Environment enclosing;
 
     // Construtores - básico mesmo, um sem pai e outro com pai
@@ -18,16 +22,21 @@ public class Environment {
 
     // Define uma variável no escopo atual
     public void define(String name, Object value) {
-        values.put(name, value);
+        values.put(Symbol.intern(name), wrap(value));
+    }
+
+    public void define(Symbol name, Object value) {
+        values.put(name, wrap(value));
     }
 
     public void define(Token token, Object value) {
-        values.put(token.lexeme, value);
+        values.put(token.symbol, wrap(value));
     }
 
     public Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        Object value = values.get(name.symbol);
+        if (value != null) {
+            return unwrap(value);
         }
 
         if (enclosing != null) {
@@ -38,8 +47,8 @@ public class Environment {
     }
 
     public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+        // replace só troca se a variável existe, sem janela entre o teste e a escrita
+        if (values.replace(name.symbol, wrap(value)) != null) {
             return;
         }
 
@@ -52,15 +61,37 @@ public class Environment {
     }
 
     // Métodos otimizados - o resolver já calculou a distância
-    public Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+    public Object getAt(int distance, Symbol name) {
+        return unwrap(ancestor(distance).values.get(name));
     }
 
     public void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+        ancestor(distance).values.put(name.symbol, wrap(value));
+    }
+
+    // Cópia das variáveis deste escopo, com nil como null (usada pelo snapshot e pelo import)
+    Map<Symbol, Object> values() {
+        Map<Symbol, Object> copy = new HashMap<>();
+        for (Map.Entry<Symbol, Object> entry : values.entrySet()) copy.put(entry.getKey(), unwrap(entry.getValue()));
+        return copy;
+    }
+
+    private static Object wrap(Object value) {
+        return value == null ? NIL : value;
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NIL ? null : value;
+    }
+
+    // Quantos escopos acima deste até a raiz (os globais do módulo)
+    int depth() {
+        int depth = 0;
+        for (Environment scope = enclosing; scope != null; scope = scope.enclosing) depth++;
+        return depth;
     }
 
-    private Environment ancestor(int distance) {
+    Environment ancestor(int distance) {
         Environment environment = this;
         for (int i = 0; i < distance; i++) {
             environment = environment.enclosing;
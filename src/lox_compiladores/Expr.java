@@ -34,15 +34,21 @@ public abstract class Expr {
     }
 
     // 2. Operação binária (1 + 2)
+    // Operadores guardam só o tipo e a linha; o Token só é refeito se um erro precisar dele
     public static class BinaryOp extends Expr {
         public final Expr left;
-        public final Token operator;
+        public final TokenType operator;
+        public final int line;
         public final Expr right;
-        public BinaryOp(Expr left, Token operator, Expr right) {
+        public BinaryOp(Expr left, TokenType operator, int line, Expr right) {
             this.left = left;
             this.operator = operator;
+            this.line = line;
             this.right = right;
         }
+        public BinaryOp(Expr left, Token operator, Expr right) {
+            this(left, operator.type, operator.line, right);
+        }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateBinary(this);
         }
@@ -51,13 +57,20 @@ public abstract class Expr {
     // 3. Chamada de função (funcao())
     public static class CallExpr extends Expr {
         public final Expr callee;
-        public final Token paren;
+        // Linha do ')' que fecha os argumentos
+        public final int line;
         public final List<Expr> arguments;
-        public CallExpr(Expr callee, Token paren, List<Expr> arguments) {
+        public CallExpr(Expr callee, int line, List<Expr> arguments) {
             this.callee = callee;
-            this.paren = paren;
+            this.line = line;
             this.arguments = arguments;
         }
+        public CallExpr(Expr callee, Token paren, List<Expr> arguments) {
+            this(callee, paren.line, arguments);
+        }
+        Token paren() {
+            return Token.at(TokenType.RIGHT_PAREN, line);
+        }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateCall(this);
         }
@@ -66,10 +79,18 @@ public abstract class Expr {
     // 4. Acesso a propriedade (objeto.propriedade)
     public static class GetProp extends Expr {
         public final Expr object;
-        public final Token property;
-        public GetProp(Expr object, Token property) {
+        public final Symbol name;
+        public final int line;
+        public GetProp(Expr object, Symbol name, int line) {
             this.object = object;
-            this.property = property;
+            this.name = name;
+            this.line = line;
+        }
+        public GetProp(Expr object, Token property) {
+            this(object, property.symbol, property.line);
+        }
+        Token property() {
+            return Token.at(name, line);
         }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateGet(this);
@@ -79,13 +100,18 @@ public abstract class Expr {
     // 5. Atribuição a propriedade (objeto.propriedade = valor)
     public static class SetProp extends Expr {
         public final Expr object;
-        public final Token property;
+        public final Symbol name;
+        public final int line;
         public final Expr value;
-        public SetProp(Expr object, Token property, Expr value) {
+        public SetProp(Expr object, Symbol name, int line, Expr value) {
             this.object = object;
-            this.property = property;
+            this.name = name;
+            this.line = line;
             this.value = value;
         }
+        Token property() {
+            return Token.at(name, line);
+        }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateSet(this);
         }
@@ -116,13 +142,18 @@ public abstract class Expr {
     // 8. Operadores lógicos (and/or)
     public static class LogicalOp extends Expr {
         public final Expr left;
-        public final Token operator;
+        public final TokenType operator;
+        public final int line;
         public final Expr right;
-        public LogicalOp(Expr left, Token operator, Expr right) {
+        public LogicalOp(Expr left, TokenType operator, int line, Expr right) {
             this.left = left;
             this.operator = operator;
+            this.line = line;
             this.right = right;
         }
+        public LogicalOp(Expr left, Token operator, Expr right) {
+            this(left, operator.type, operator.line, right);
+        }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateLogical(this);
         }
@@ -130,12 +161,17 @@ public abstract class Expr {
 
     // 9. Operador unário (-, !)
     public static class UnaryOp extends Expr {
-        public final Token operator;
+        public final TokenType operator;
+        public final int line;
         public final Expr right;
-        public UnaryOp(Token operator, Expr right) {
+        public UnaryOp(TokenType operator, int line, Expr right) {
             this.operator = operator;
+            this.line = line;
             this.right = right;
         }
+        public UnaryOp(Token operator, Expr right) {
+            this(operator.type, operator.line, right);
+        }
         @Override public <T> T accept(ExpressionEvaluator<T> evaluator) {
             return evaluator.evaluateUnary(this);
         }
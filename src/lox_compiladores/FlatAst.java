@@ -0,0 +1,363 @@
+package lox_compiladores;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// AST em arrays contíguos: cada nó é um índice, com o tipo em 'kinds', até três operandos inteiros
+// (filhos, distâncias, índices de lista ou de constante), a linha e, nos nós com nome, o índice do token.
+// Os nós ficam em pré-ordem, então avaliar um nó anda sempre para frente na memória.
+final class FlatAst {
+    static final byte BLOCK = 1, EXPRESSION = 2, FUNCTION = 3, IF = 4, PRINT = 5, RETURN = 6, VAR = 7,
+            WHILE = 8, CLASS = 9, IMPORT = 10;
+    static final byte ASSIGN = 20, BINARY = 21, CALL = 22, GET = 23, SET = 24, LITERAL = 25, GROUPING = 26,
+            LOGICAL = 27, UNARY = 28, VARIABLE = 29, THIS = 30, SUPER = 31;
+    static final int NONE = -1;
+
+    // Declaração de função que aponta para o corpo já achatado; é o que o LoxFunc guarda
+    static final class Function extends Stmt.Function {
+        final FlatAst ast;
+        final int body;
+        final int count;
+
+        Function(FlatAst ast, Token name, List<Token> params, int body, int count) {
+            super(name, params, List.of());
+            this.ast = ast;
+            this.body = body;
+            this.count = count;
+        }
+    }
+
+    byte[] kinds = new byte[256];
+    int[] first = new int[256];
+    int[] second = new int[256];
+    int[] third = new int[256];
+    int[] tokenIndex = new int[256];
+    int[] lines = new int[256];
+    int size = 0;
+
+    // Filhos de blocos, argumentos de chamada e métodos de classe, em faixas contíguas
+    int[] lists = new int[256];
+    int listSize = 0;
+
+    Token[] tokens = new Token[64];
+    int tokenCount = 0;
+    Object[] constants = new Object[64];
+    int constantCount = 0;
+
+    // Faixa de 'lists' com as declarações de topo
+    int program;
+    int programCount;
+
+    private FlatAst() {}
+
+    // Achata o programa já resolvido. As distâncias vão para dentro dos nós e saem de 'locals',
+    // que não precisa mais segurar a árvore original viva.
+    static FlatAst flatten(List<Stmt> statements, Map<Expr, Integer> locals) {
+        FlatAst ast = new FlatAst();
+        Builder builder = new Builder(ast, locals);
+        ast.program = builder.list(statements);
+        ast.programCount = statements.size();
+        return ast;
+    }
+
+    Token token(int node) {
+        return tokens[tokenIndex[node]];
+    }
+
+    // Bytes ocupados pelos arrays (sem contar tokens e constantes, que são compartilhados com o scanner)
+    long footprint() {
+        return kinds.length
+                + 4L * (first.length + second.length + third.length + tokenIndex.length + lines.length + lists.length)
+                + 4L * (tokens.length + constants.length);
+    }
+
+    private int node(byte kind, Token token) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            third = Arrays.copyOf(third, capacity);
+            tokenIndex = Arrays.copyOf(tokenIndex, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = kind;
+        first[size] = NONE;
+        second[size] = NONE;
+        third[size] = NONE;
+        tokenIndex[size] = token == null ? NONE : token(token);
+        lines[size] = token == null ? 0 : token.line;
+        return size++;
+    }
+
+    // Nó sem token: operadores, chamadas e propriedades só guardam a linha
+    private int node(byte kind, int line) {
+        int node = node(kind, (Token) null);
+        lines[node] = line;
+        return node;
+    }
+
+    private int token(Token token) {
+        if (tokenCount == tokens.length) tokens = Arrays.copyOf(tokens, tokenCount * 2);
+        tokens[tokenCount] = token;
+        return tokenCount++;
+    }
+
+    private int constant(Object value) {
+        if (constantCount == constants.length) constants = Arrays.copyOf(constants, constantCount * 2);
+        constants[constantCount] = value;
+        return constantCount++;
+    }
+
+    private int reserve(int count) {
+        if (listSize + count > lists.length) lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listSize + count));
+        int start = listSize;
+        listSize += count;
+        return start;
+    }
+
+    // Percorre a árvore uma vez, em pré-ordem. Os filhos são calculados antes de escrever no array
+    // do pai, porque construí-los pode trocar o array por um maior
+    private static final class Builder implements Stmt.Visitor<Integer>, Expr.ExpressionEvaluator<Integer> {
+        private final FlatAst ast;
+        private final Map<Expr, Integer> locals;
+
+        Builder(FlatAst ast, Map<Expr, Integer> locals) {
+            this.ast = ast;
+            this.locals = locals;
+        }
+
+        int list(List<Stmt> statements) {
+            int start = ast.reserve(statements.size());
+            for (int i = 0; i < statements.size(); i++) {
+                int child = stmt(statements.get(i));
+                ast.lists[start + i] = child;
+            }
+            return start;
+        }
+
+        private int stmt(Stmt stmt) {
+            return stmt == null ? NONE : stmt.accept(this);
+        }
+
+        private int expr(Expr expr) {
+            return expr == null ? NONE : expr.accept(this);
+        }
+
+        private int depth(Expr expr) {
+            Integer depth = locals.remove(expr);
+            return depth == null ? NONE : depth;
+        }
+
+        private Function function(Stmt.Function function) {
+            List<Stmt> body = function.body();
+            if (body == null) throw new IllegalStateException("Lazy function bodies can't be flattened.");
+            return new Function(ast, function.name, function.params, list(body), body.size());
+        }
+
+        @Override
+        public Integer visitBlockStmt(Stmt.Block stmt) {
+            int node = ast.node(BLOCK, stmt.line);
+            int first = list(stmt.statements);
+            ast.first[node] = first;
+            ast.second[node] = stmt.statements.size();
+            return node;
+        }
+
+        @Override
+        public Integer visitExpressionStmt(Stmt.Expression stmt) {
+            int node = ast.node(EXPRESSION, null);
+            int first = expr(stmt.expression);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer visitFunctionStmt(Stmt.Function stmt) {
+            int node = ast.node(FUNCTION, stmt.name);
+            int first = ast.constant(function(stmt));
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer visitIfStmt(Stmt.If stmt) {
+            int node = ast.node(IF, null);
+            int first = expr(stmt.condition);
+            ast.first[node] = first;
+            int second = stmt(stmt.thenBranch);
+            ast.second[node] = second;
+            int third = stmt(stmt.elseBranch);
+            ast.third[node] = third;
+            return node;
+        }
+
+        @Override
+        public Integer visitPrintStmt(Stmt.Print stmt) {
+            int node = ast.node(PRINT, null);
+            int first = expr(stmt.expression);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer visitReturnStmt(Stmt.Return stmt) {
+            int node = ast.node(RETURN, stmt.keyword);
+            int first = expr(stmt.value);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer visitVarStmt(Stmt.Var stmt) {
+            int node = ast.node(VAR, stmt.name);
+            int first = expr(stmt.initializer);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer visitWhileStmt(Stmt.While stmt) {
+            int node = ast.node(WHILE, stmt.line);
+            int first = expr(stmt.condition);
+            ast.first[node] = first;
+            int second = stmt(stmt.body);
+            ast.second[node] = second;
+            return node;
+        }
+
+        @Override
+        public Integer visitClassStmt(Stmt.Class stmt) {
+            int node = ast.node(CLASS, stmt.name);
+            // A superclasse é sempre buscada nos globais, como na árvore
+            if (stmt.superclass != null) ast.third[node] = ast.token(stmt.superclass.name);
+            int start = ast.reserve(stmt.methods.size());
+            for (int i = 0; i < stmt.methods.size(); i++) {
+                int method = ast.constant(function(stmt.methods.get(i)));
+                ast.lists[start + i] = method;
+            }
+            ast.first[node] = start;
+            ast.second[node] = stmt.methods.size();
+            return node;
+        }
+
+        @Override
+        public Integer visitImportStmt(Stmt.Import stmt) {
+            int node = ast.node(IMPORT, stmt.keyword);
+            ast.first[node] = ast.constant(stmt);
+            return node;
+        }
+
+        @Override
+        public Integer evaluateAssignment(Expr.Assign expr) {
+            int node = ast.node(ASSIGN, expr.target);
+            ast.second[node] = depth(expr);
+            int first = expr(expr.value);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateBinary(Expr.BinaryOp expr) {
+            int node = ast.node(BINARY, expr.line);
+            ast.third[node] = expr.operator.ordinal();
+            int first = expr(expr.left);
+            ast.first[node] = first;
+            int second = expr(expr.right);
+            ast.second[node] = second;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateCall(Expr.CallExpr expr) {
+            int node = ast.node(CALL, expr.line);
+            int first = expr(expr.callee);
+            ast.first[node] = first;
+            int start = ast.reserve(expr.arguments.size());
+            for (int i = 0; i < expr.arguments.size(); i++) {
+                int argument = expr(expr.arguments.get(i));
+                ast.lists[start + i] = argument;
+            }
+            ast.second[node] = start;
+            ast.third[node] = expr.arguments.size();
+            return node;
+        }
+
+        @Override
+        public Integer evaluateGet(Expr.GetProp expr) {
+            int node = ast.node(GET, expr.line);
+            ast.second[node] = ast.constant(expr.name);
+            int first = expr(expr.object);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateSet(Expr.SetProp expr) {
+            int node = ast.node(SET, expr.line);
+            ast.third[node] = ast.constant(expr.name);
+            int first = expr(expr.object);
+            ast.first[node] = first;
+            int second = expr(expr.value);
+            ast.second[node] = second;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateLiteral(Expr.Value expr) {
+            int node = ast.node(LITERAL, null);
+            ast.first[node] = ast.constant(expr.value);
+            return node;
+        }
+
+        @Override
+        public Integer evaluateGrouping(Expr.Group expr) {
+            int node = ast.node(GROUPING, null);
+            int first = expr(expr.expression);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateLogical(Expr.LogicalOp expr) {
+            int node = ast.node(LOGICAL, expr.line);
+            ast.third[node] = expr.operator.ordinal();
+            int first = expr(expr.left);
+            ast.first[node] = first;
+            int second = expr(expr.right);
+            ast.second[node] = second;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateUnary(Expr.UnaryOp expr) {
+            int node = ast.node(UNARY, expr.line);
+            ast.third[node] = expr.operator.ordinal();
+            int first = expr(expr.right);
+            ast.first[node] = first;
+            return node;
+        }
+
+        @Override
+        public Integer evaluateVariable(Expr.VarRef expr) {
+            int node = ast.node(VARIABLE, expr.name);
+            ast.first[node] = depth(expr);
+            return node;
+        }
+
+        @Override
+        public Integer evaluateThis(Expr.ThisRef expr) {
+            int node = ast.node(THIS, expr.keyword);
+            ast.first[node] = depth(expr);
+            return node;
+        }
+
+        @Override
+        public Integer evaluateSuper(Expr.SuperCall expr) {
+            int node = ast.node(SUPER, expr.method);
+            ast.first[node] = depth(expr);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package lox_compiladores;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interpretador que roda sobre a FlatAst: mesma semântica do LoxInterpreter, mas cada nó é um índice
+// e o despacho é um switch no tipo, sem visitor. Funções declaradas aqui guardam uma FlatAst.Function;
+// as que vieram de fora (snapshot, módulos) continuam rodando pela árvore.
+final class FlatInterpreter extends LoxInterpreter {
+    private static final TokenType[] operators = TokenType.values();
+
+    // AST da função (ou do programa) em execução
+    private FlatAst ast;
+
+    FlatInterpreter() {
+        super();
+    }
+
+    FlatInterpreter(Diagnostics diagnostics) {
+        super(diagnostics);
+    }
+
+    private FlatInterpreter(FlatInterpreter parent) {
+        super(parent);
+    }
+
+    @Override
+    LoxInterpreter fork() {
+        return new FlatInterpreter(this);
+    }
+
+    @Override
+    void interpret(List<Stmt> statements) {
+        FlatAst previous = ast;
+        try {
+            ast = FlatAst.flatten(statements, locals);
+            for (int i = 0; i < ast.programCount; i++) {
+                execute(ast.lists[ast.program + i]);
+            }
+        } catch (RuntimeError error) {
+            diagnostics.runtimeError(error);
+        } finally {
+            ast = previous;
+        }
+    }
+
+    @Override
+    void executeFunction(Stmt.Function declaration, Environment environment, Environment moduleGlobals) {
+        if (!(declaration instanceof FlatAst.Function)) {
+            super.executeFunction(declaration, environment, moduleGlobals);
+            return;
+        }
+        FlatAst.Function function = (FlatAst.Function) declaration;
+        FlatAst previousAst = ast;
+        Environment previousGlobals = globals;
+        try {
+            ast = function.ast;
+            globals = moduleGlobals;
+            executeList(function.body, function.count, environment);
+        } finally {
+            ast = previousAst;
+            globals = previousGlobals;
+        }
+    }
+
+    private void executeList(int start, int count, Environment scope) {
+        Environment previous = environment;
+        try {
+            environment = scope;
+            for (int i = 0; i < count; i++) {
+                execute(ast.lists[start + i]);
+            }
+        } finally {
+            environment = previous;
+        }
+    }
+
+    private void execute(int node) {
+        switch (ast.kinds[node]) {
+            case FlatAst.BLOCK:
+                allocate(AllocationBudget.FRAME, ast.lines[node]);
+                executeList(ast.first[node], ast.second[node], new Environment(environment));
+                break;
+            case FlatAst.EXPRESSION:
+                evaluate(ast.first[node]);
+                break;
+            case FlatAst.FUNCTION: {
+                FlatAst.Function declaration = (FlatAst.Function) ast.constants[ast.first[node]];
+                allocate(AllocationBudget.CLOSURE, declaration.name.line);
+                environment.define(ast.token(node), new LoxFunc(declaration, environment, false));
+                break;
+            }
+            case FlatAst.IF:
+                if (isTruthy(evaluate(ast.first[node]))) {
+                    execute(ast.second[node]);
+                } else if (ast.third[node] != FlatAst.NONE) {
+                    execute(ast.third[node]);
+                }
+                break;
+            case FlatAst.PRINT:
+                out.println(stringify(evaluate(ast.first[node])));
+                break;
+            case FlatAst.RETURN:
+                throw new Return(ast.first[node] == FlatAst.NONE ? null : evaluate(ast.first[node]));
+            case FlatAst.VAR: {
+                Object value = ast.first[node] == FlatAst.NONE ? null : evaluate(ast.first[node]);
+                environment.define(ast.token(node), value);
+                break;
+            }
+            case FlatAst.WHILE:
+                while (isTruthy(evaluate(ast.first[node]))) {
+                    execute(ast.second[node]);
+                    tick(ast.lines[node]);
+                }
+                break;
+            case FlatAst.CLASS:
+                executeClass(node);
+                break;
+            case FlatAst.IMPORT:
+                visitImportStmt((Stmt.Import) ast.constants[ast.first[node]]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown statement kind " + ast.kinds[node] + ".");
+        }
+    }
+
+    private void executeClass(int node) {
+        Token name = ast.token(node);
+        Object superclass = null;
+        if (ast.third[node] != FlatAst.NONE) {
+            Token superName = ast.tokens[ast.third[node]];
+            superclass = globals.get(superName);
+            if (!(superclass instanceof LoxClasses)) {
+                throw new RuntimeError(superName, "Superclass must be a class.");
+            }
+        }
+
+        environment.define(name, null);
+
+        if (superclass != null) {
+            environment = new Environment(environment);
+            environment.define(Symbol.SUPER, superclass);
+        }
+
+        Map<Symbol, LoxFunc> methods = new HashMap<>();
+        for (int i = 0; i < ast.second[node]; i++) {
+            FlatAst.Function method = (FlatAst.Function) ast.constants[ast.lists[ast.first[node] + i]];
+            methods.put(method.name.symbol, new LoxFunc(method, environment, method.name.symbol == Symbol.INIT));
+            if (profiler != null) profiler.method(method, name.lexeme);
+        }
+
+        LoxClasses klass = new LoxClasses(name.lexeme, (LoxClasses) superclass, methods);
+
+        if (superclass != null) {
+            environment = environment.enclosing;
+        }
+
+        environment.assign(name, klass);
+    }
+
+    private Object evaluate(int node) {
+        switch (ast.kinds[node]) {
+            case FlatAst.ASSIGN: {
+                Object value = evaluate(ast.first[node]);
+                int distance = ast.second[node];
+                if (distance != FlatAst.NONE) {
+                    environment.assignAt(distance, ast.token(node), value);
+                } else {
+                    globals.assign(ast.token(node), value);
+                }
+                return value;
+            }
+            case FlatAst.BINARY: {
+                Object left = evaluate(ast.first[node]);
+                Object right = evaluate(ast.second[node]);
+                return binary(operators[ast.third[node]], ast.lines[node], left, right);
+            }
+            case FlatAst.CALL:
+                return call(node);
+            case FlatAst.GET: {
+                Object object = evaluate(ast.first[node]);
+                Symbol name = (Symbol) ast.constants[ast.second[node]];
+                if (object instanceof LoxInstance) {
+                    Object value = ((LoxInstance) object).get(name, ast.lines[node]);
+                    if (value instanceof LoxFunc) allocate(AllocationBudget.FRAME + AllocationBudget.CLOSURE, ast.lines[node]);
+                    return value;
+                }
+                throw new RuntimeError(Token.at(name, ast.lines[node]), "Only instances have properties.");
+            }
+            case FlatAst.SET: {
+                Object object = evaluate(ast.first[node]);
+                Symbol name = (Symbol) ast.constants[ast.third[node]];
+                if (!(object instanceof LoxInstance)) {
+                    throw new RuntimeError(Token.at(name, ast.lines[node]), "Only instances have fields.");
+                }
+                Object value = evaluate(ast.second[node]);
+                if (((LoxInstance) object).set(name, value)) allocate(AllocationBudget.FIELD, ast.lines[node]);
+                return value;
+            }
+            case FlatAst.LITERAL:
+                return ast.constants[ast.first[node]];
+            case FlatAst.GROUPING:
+                return evaluate(ast.first[node]);
+            case FlatAst.LOGICAL: {
+                Object left = evaluate(ast.first[node]);
+                if (operators[ast.third[node]] == TokenType.OR) {
+                    if (isTruthy(left)) return left;
+                } else {
+                    if (!isTruthy(left)) return left;
+                }
+                return evaluate(ast.second[node]);
+            }
+            case FlatAst.UNARY:
+                return unary(operators[ast.third[node]], ast.lines[node], evaluate(ast.first[node]));
+            case FlatAst.VARIABLE:
+            case FlatAst.THIS: {
+                int distance = ast.first[node];
+                if (distance != FlatAst.NONE) {
+                    return environment.getAt(distance, ast.token(node).symbol);
+                }
+                return globals.get(ast.token(node));
+            }
+            case FlatAst.SUPER:
+                return superMethod(node);
+            default:
+                throw new IllegalStateException("Unknown expression kind " + ast.kinds[node] + ".");
+        }
+    }
+
+    private Object call(int node) {
+        Object callee = evaluate(ast.first[node]);
+
+        int count = ast.third[node];
+        List<Object> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arguments.add(evaluate(ast.lists[ast.second[node] + i]));
+        }
+
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(Token.at(TokenType.RIGHT_PAREN, ast.lines[node]), "Can only call functions and classes.");
+        }
+
+        LoxCallable function = (LoxCallable) callee;
+        if (arguments.size() != function.ParamNumbs()) {
+            throw new RuntimeError(Token.at(TokenType.RIGHT_PAREN, ast.lines[node]), "Expected " + function.ParamNumbs() + " arguments but got " + arguments.size() + ".");
+        }
+
+        try {
+            return function.call(this, arguments);
+        } catch (RuntimeError error) {
+            throw atCallSite(error, ast.lines[node]);
+        }
+    }
+
+    // O escopo do 'this' fica logo abaixo do escopo do 'super'
+    private Object superMethod(int node) {
+        Token method = ast.token(node);
+        Environment thisScope = environment.ancestor(ast.first[node] - 1);
+        LoxInstance object = (LoxInstance) thisScope.getAt(0, Symbol.THIS);
+        LoxClasses superclass = (LoxClasses) thisScope.enclosing.getAt(0, Symbol.SUPER);
+        LoxFunc found = superclass.findMethod(method.symbol);
+        if (found == null) {
+            throw new RuntimeError(method, "Undefined property '" + method.lexeme + "'.");
+        }
+        return found.bind(object);
+    }
+}
@@ -0,0 +1,67 @@
+package lox_compiladores;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Orçamento de execução de um script: uma unidade por volta de laço e por chamada de função Lox.
+// O interpretador não fala com este objeto a cada unidade: pega um QUANTUM de uma vez e só volta
+// aqui quando ele acaba, então o custo no caminho quente é decrementar e testar um int. Perto do fim
+// os quanta encolhem, e quem termina (tarefa, pedaço paralelo) devolve o que não gastou: muitas
+// tarefas curtas não esgotam um orçamento que mal usaram.
+//
+// Com 'slots' (semáforo justo compartilhado entre scripts), cada thread do script (a principal, as
+// tarefas de spawn e os pedaços das nativas paralelas) só roda segurando uma vaga e devolve a vaga a
+// cada quantum, indo para o fim da fila: poucas threads de CPU revezam entre muitos scripts, e um
+// script que não termina não segura os outros. Quem estaciona (join, canais, nativas paralelas)
+// larga a vaga enquanto espera (ver LoxInterpreter.blocking).
+final class Fuel {
+    static final int QUANTUM = 10_000;
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final AtomicLong remaining;
+    private final Semaphore slots;
+
+    Fuel(long limit, Semaphore slots) {
+        this.remaining = new AtomicLong(limit);
+        this.slots = slots;
+    }
+
+    // Próximo quantum para 'interpreter'; se ele segura uma vaga, antes vai para o fim da fila
+    int refill(LoxInterpreter interpreter) {
+        if (slots != null && interpreter.holdsSlot) {
+            slots.release();
+            slots.acquireUninterruptibly();
+        }
+        while (true) {
+            long before = remaining.get();
+            if (before == UNLIMITED) return QUANTUM;
+            if (before <= 0) throw new RuntimeError(null, "Fuel exhausted.");
+            // Um dezesseis avos do que resta: várias threads ainda conseguem pegar quanta perto do fim
+            long grant = Math.max(1, Math.min(QUANTUM, before / 16));
+            if (remaining.compareAndSet(before, before - grant)) return (int) grant;
+        }
+    }
+
+    // Devolve a parte não gasta do quantum de um interpretador que terminou
+    void giveBack(int units) {
+        if (units <= 0 || remaining.get() == UNLIMITED) return;
+        remaining.addAndGet(units);
+    }
+
+    void enter(LoxInterpreter interpreter) {
+        if (slots == null) return;
+        slots.acquireUninterruptibly();
+        interpreter.holdsSlot = true;
+    }
+
+    void exit(LoxInterpreter interpreter) {
+        if (!interpreter.holdsSlot) return;
+        interpreter.holdsSlot = false;
+        slots.release();
+    }
+
+    // Unidades ainda não entregues a nenhum interpretador
+    long remaining() {
+        return Math.max(0, remaining.get());
+    }
+}
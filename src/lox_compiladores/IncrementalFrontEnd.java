@@ -0,0 +1,271 @@
+package lox_compiladores;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Front end incremental para o REPL e para editores: o buffer inteiro é guardado como uma lista de
+// declarações de topo, cada uma com seu texto, tokens já analisados, tabela de resolução e diagnósticos.
+// A cada versão nova do buffer só o trecho editado é escaneado e analisado de novo; as outras
+// declarações são reaproveitadas e só voltam a ser resolvidas se dependem de um tipo que mudou.
+final class IncrementalFrontEnd {
+
+    // Uma declaração de topo e o espaço em branco/comentários que vêm antes dela
+    private static final class Declaration {
+        String text;
+        final List<Stmt> statements;
+        final Diagnostics diagnostics;
+        // Nomes citados na declaração: decidem se ela precisa ser resolvida de novo
+        final Set<Symbol> names;
+        Map<Expr, Integer> locals = new HashMap<>();
+        // Tipos de variável que a declaração registrou, em ordem
+        List<Map.Entry<Symbol, Resolver.LoxType>> types = List.of();
+
+        Declaration(String text, List<Stmt> statements, Diagnostics diagnostics, Set<Symbol> names) {
+            this.text = text;
+            this.statements = statements;
+            this.diagnostics = diagnostics;
+            this.names = names;
+        }
+
+        boolean clean() {
+            return !diagnostics.hadError();
+        }
+    }
+
+    // Tabela de tipos do resolver que anota as escritas da declaração sendo resolvida
+    private static final class TypeLog extends HashMap<Symbol, Resolver.LoxType> {
+        List<Map.Entry<Symbol, Resolver.LoxType>> writes;
+
+        @Override
+        public Resolver.LoxType put(Symbol name, Resolver.LoxType type) {
+            if (writes != null) writes.add(new AbstractMap.SimpleImmutableEntry<>(name, type));
+            return super.put(name, type);
+        }
+    }
+
+    private List<Declaration> declarations = new ArrayList<>();
+    private String source = "";
+    // Espaço em branco/comentários depois da última declaração
+    private String trailing = "";
+    private boolean hadError = false;
+    // Declarações analisadas na última atualização
+    private final List<Declaration> fresh = new ArrayList<>();
+
+    // Troca o buffer pela versão nova e devolve as declarações que foram analisadas de novo, em ordem
+    List<Stmt> update(String text) {
+        int prefix = 0;
+        int limit = Math.min(source.length(), text.length());
+        while (prefix < limit && source.charAt(prefix) == text.charAt(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && source.charAt(source.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        // Antes da edição: declarações que terminam até o primeiro caractere mudado ficam como estão
+        List<Declaration> kept = new ArrayList<>();
+        int offset = 0;
+        int index = 0;
+        while (index < declarations.size()) {
+            Declaration declaration = declarations.get(index);
+            if (offset + declaration.text.length() > prefix || !declaration.clean()) break;
+            kept.add(declaration);
+            offset += declaration.text.length();
+            index++;
+        }
+        int regionStart = offset;
+
+        // Depois da edição: declarações inteiras dentro do sufixo comum, se não mudaram de linha
+        int shift = count(text, prefix, text.length() - suffix) - count(source, prefix, source.length() - suffix);
+        List<Declaration> after = new ArrayList<>();
+        int end = source.length() - trailing.length();
+        if (shift == 0 && trailing.length() <= suffix) {
+            for (int i = declarations.size() - 1; i >= index; i--) {
+                Declaration declaration = declarations.get(i);
+                int start = end - declaration.text.length();
+                if (start < source.length() - suffix || !declaration.clean()) break;
+                after.add(0, declaration);
+                end = start;
+            }
+        }
+        int regionEnd = after.isEmpty() ? text.length() : text.length() - (source.length() - end);
+
+        Set<Symbol> changed = new HashSet<>();
+        for (int i = index; i < declarations.size() - after.size(); i++) {
+            for (Map.Entry<Symbol, Resolver.LoxType> type : declarations.get(i).types) changed.add(type.getKey());
+        }
+
+        int line = 1 + count(text, 0, regionStart);
+        List<Declaration> rebuilt = parse(text.substring(regionStart, regionEnd), line, !after.isEmpty());
+        if (rebuilt == null) {
+            // O trecho não fechou sozinho (string ou bloco aberto, por exemplo): vai até o fim do buffer
+            after.clear();
+            regionEnd = text.length();
+            rebuilt = parse(text.substring(regionStart), line, false);
+        }
+        if (after.isEmpty()) {
+            trailing = rebuilt.remove(rebuilt.size() - 1).text;
+        } else {
+            // O que sobrou depois da última declaração nova vira espaço antes da primeira reaproveitada
+            Declaration rest = rebuilt.remove(rebuilt.size() - 1);
+            after.get(0).text = rest.text + after.get(0).text;
+        }
+
+        declarations = kept;
+        declarations.addAll(rebuilt);
+        declarations.addAll(after);
+        source = text;
+        return resolve(new HashSet<>(rebuilt), changed);
+    }
+
+    // Escaneia e analisa um trecho; cada declaração de topo vira uma entrada, e a última entrada
+    // guarda só o texto que sobrou depois delas. Se 'closed' e o trecho teve erro, devolve null
+    private List<Declaration> parse(String region, int line, boolean closed) {
+        Diagnostics diagnostics = new Diagnostics();
+        TokenBuffer tokens = new Scanner(region, line, diagnostics).scan();
+        Parser parser = new Parser(tokens, diagnostics);
+
+        List<Declaration> parsed = new ArrayList<>();
+        if (diagnostics.hadError()) {
+            if (closed) return null;
+            parsed.add(new Declaration(region, List.of(), diagnostics, Set.of()));
+            parsed.add(new Declaration("", List.of(), new Diagnostics(), Set.of()));
+            return parsed;
+        }
+
+        int offset = 0;
+        while (parser.hasNext()) {
+            int first = parser.position();
+            Stmt statement = parser.next();
+            if (diagnostics.hadError()) {
+                if (closed) return null;
+                // Com erro de sintaxe, o resto do trecho fica numa entrada só, com os erros dela
+                while (parser.hasNext()) parser.next();
+                parsed.add(new Declaration(region.substring(offset), List.of(), diagnostics, Set.of()));
+                parsed.add(new Declaration("", List.of(), new Diagnostics(), Set.of()));
+                return parsed;
+            }
+            int last = parser.position() - 1;
+            int end = tokens.offset(last) + tokens.length(last);
+            Set<Symbol> names = new HashSet<>();
+            for (int i = first; i <= last; i++) {
+                if (tokens.type(i) == TokenType.IDENTIFIER) names.add(tokens.symbol(i));
+            }
+            parsed.add(new Declaration(region.substring(offset, end), List.of(statement), new Diagnostics(), names));
+            offset = end;
+        }
+        String rest = region.substring(offset);
+        // Um comentário aberto na última linha engoliria o começo do que vem depois do trecho
+        if (closed && rest.substring(rest.lastIndexOf('\n') + 1).contains("//")) return null;
+        parsed.add(new Declaration(rest, List.of(), new Diagnostics(), Set.of()));
+        return parsed;
+    }
+
+    // Resolve as declarações novas e as antigas que citam um nome cujo tipo pode ter mudado,
+    // na ordem do buffer, com a tabela de tipos no estado em que estaria numa resolução completa
+    private List<Stmt> resolve(Set<Declaration> rebuilt, Set<Symbol> changed) {
+        List<Stmt> statements = new ArrayList<>();
+        TypeLog types = new TypeLog();
+        hadError = false;
+        this.fresh.clear();
+        for (Declaration declaration : declarations) {
+            boolean fresh = rebuilt.contains(declaration);
+            if (fresh) this.fresh.add(declaration);
+            if (!declaration.clean()) {
+                hadError = true;
+                continue;
+            }
+
+            if (fresh || depends(declaration, changed)) {
+                List<Map.Entry<Symbol, Resolver.LoxType>> previous = declaration.types;
+                declaration.diagnostics.warnings().clear();
+                declaration.locals = new HashMap<>();
+                types.writes = new ArrayList<>();
+                Resolver resolver = new Resolver(declaration.locals, declaration.diagnostics, types);
+                resolver.resolve(declaration.statements);
+                declaration.types = types.writes;
+                types.writes = null;
+                // Só propaga se os tipos que ela registra mudaram de fato
+                if (fresh || !declaration.types.equals(previous)) {
+                    for (Map.Entry<Symbol, Resolver.LoxType> type : previous) changed.add(type.getKey());
+                    for (Map.Entry<Symbol, Resolver.LoxType> type : declaration.types) changed.add(type.getKey());
+                }
+                if (fresh) statements.addAll(declaration.statements);
+                if (!declaration.clean()) hadError = true;
+            } else {
+                for (Map.Entry<Symbol, Resolver.LoxType> type : declaration.types) {
+                    types.put(type.getKey(), type.getValue());
+                }
+            }
+        }
+        return statements;
+    }
+
+    private static boolean depends(Declaration declaration, Set<Symbol> changed) {
+        if (changed.isEmpty()) return false;
+        for (Symbol name : declaration.names) {
+            if (changed.contains(name)) return true;
+        }
+        return false;
+    }
+
+    // Todas as declarações do buffer, na ordem
+    List<Stmt> statements() {
+        List<Stmt> statements = new ArrayList<>();
+        for (Declaration declaration : declarations) statements.addAll(declaration.statements);
+        return statements;
+    }
+
+    // Tabela de resolução do buffer inteiro
+    Map<Expr, Integer> locals() {
+        Map<Expr, Integer> locals = new HashMap<>();
+        for (Declaration declaration : declarations) locals.putAll(declaration.locals);
+        return locals;
+    }
+
+    // Erros e avisos do buffer inteiro, na ordem das declarações
+    Diagnostics diagnostics() {
+        Diagnostics all = new Diagnostics();
+        for (Declaration declaration : declarations) {
+            for (String warning : declaration.diagnostics.warnings()) all.warning(warning);
+            for (String error : declaration.diagnostics.errors()) all.errorLine(error);
+        }
+        return all;
+    }
+
+    // Erros e avisos só das declarações analisadas na última atualização (o que o REPL mostra)
+    void report(Diagnostics target) {
+        for (Declaration declaration : fresh) {
+            for (String warning : declaration.diagnostics.warnings()) target.warning(warning);
+            for (String error : declaration.diagnostics.errors()) target.errorLine(error);
+        }
+    }
+
+    // Tabela de resolução só das declarações analisadas na última atualização
+    Map<Expr, Integer> freshLocals() {
+        Map<Expr, Integer> locals = new HashMap<>();
+        for (Declaration declaration : fresh) locals.putAll(declaration.locals);
+        return locals;
+    }
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    String source() {
+        return source;
+    }
+
+    private static int count(String text, int start, int end) {
+        int newlines = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') newlines++;
+        }
+        return newlines;
+    }
+}
@@ -0,0 +1,77 @@
+package lox_compiladores;
+
+import java.util.List;
+import java.util.Map;
+
+// Corpo de função que o parser só validou (modo preguiçoso): guarda o intervalo de tokens e,
+// depois que o resolver passa, os escopos daquele ponto. A análise e a resolução de verdade
+// acontecem na primeira chamada da função.
+//
+// Só a sintaxe é conferida antes de rodar. Os erros do resolver no corpo (nome repetido no mesmo
+// escopo, variável lida no próprio inicializador, return com valor num init...) saem na primeira
+// chamada, como erro de execução, e nunca saem se a função não for chamada; os avisos de tipo do
+// corpo não saem.
+final class LazyBody {
+    private final TokenStream tokens;
+    private final int start;
+    private final int end;
+    private Resolver.Deferred deferred;
+
+    LazyBody(TokenStream tokens, int start, int end) {
+        this.tokens = tokens;
+        this.start = start;
+        this.end = end;
+    }
+
+    void defer(Resolver.Deferred deferred) {
+        this.deferred = deferred;
+    }
+
+    synchronized List<Stmt> parse(Stmt.Function function, Map<Expr, Integer> locals, Diagnostics diagnostics) {
+        if (function.body != null) return function.body;
+
+        Diagnostics errors = new Diagnostics();
+        Parser parser = new Parser(new Slice(tokens, end), errors).lazyBodies().validatedBodies();
+        List<Stmt> body = parser.parseBody(start);
+        if (!errors.hadError()) {
+            // Resolve antes de publicar o corpo: outra tarefa que o veja já encontra a tabela completa
+            Stmt.Function resolved = new Stmt.Function(function.name, function.params, body);
+            new Resolver(locals, errors).resolveDeferred(resolved, deferred);
+            if (!errors.hadError()) function.body = body;
+        }
+
+        if (errors.hadError()) {
+            function.body = null;
+            errors.forwardErrors(diagnostics);
+            throw new RuntimeError(function.name, "Could not compile function '" + function.name.lexeme + "'.");
+        }
+        return body;
+    }
+
+    // Vista dos tokens que termina no '}' do corpo, para a recuperação de erro não passar dele
+    private static final class Slice implements TokenStream {
+        private final TokenStream tokens;
+        private final int end;
+
+        Slice(TokenStream tokens, int end) {
+            this.tokens = tokens;
+            this.end = end;
+        }
+
+        @Override
+        public TokenType type(int index) {
+            return index > end ? TokenType.EOF : tokens.type(index);
+        }
+
+        @Override
+        public Object literal(int index) {
+            return index > end ? null : tokens.literal(index);
+        }
+
+        @Override
+        public Token token(int index) {
+            if (index <= end) return tokens.token(index);
+            return new Token(TokenType.EOF, "", null, tokens.token(end).line);
+        }
+    }
+}
@@ -3,93 +3,363 @@ package lox_compiladores;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Lox {
-    private static final LoxInterpreter interpreter = new LoxInterpreter();
+    // Entra na chave do cache de compilação: mudou o interpretador, o cache antigo é ignorado
+    static final String VERSION = "1.0";
+
+    // Sink padrão das fases de compilação: imprime na hora e marca hadError, como sempre foi
+    static final Diagnostics diagnostics = new Diagnostics(System.err, System.out) {
+        @Override
+        void errorLine(String text) {
+            System.err.println(text);
+            hadError = true;
+        }
+
+        @Override
+        void runtimeError(RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    };
+
+    private static LoxInterpreter interpreter = new LoxInterpreter();
     
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
 
+    // --pipeline: scanner, parser e resolver rodam em paralelo sobre o arquivo
+    private static boolean pipelined = false;
+    // --parallel: aceita vários arquivos, compilados em paralelo e executados em ordem
+    private static boolean parallel = false;
+    // --lazy: corpos de função só são analisados na primeira chamada. A sintaxe é conferida antes de
+    // rodar, mas os erros de resolução de um corpo só saem quando ele é chamado (ver LazyBody)
+    private static boolean lazy = false;
+    // --cache[=dir]: reaproveita a AST resolvida de execuções anteriores do mesmo arquivo
+    private static Path cacheDirectory = null;
+    // --snapshot=arquivo: começa com os globais salvos em vez dos globais vazios
+    private static Path snapshot = null;
+    // --save-snapshot=arquivo: roda o script como prelúdio e salva os globais resultantes
+    private static Path saveSnapshot = null;
+    // --single-pass: o resolver roda junto com o parser, declaração por declaração
+    private static boolean singlePass = false;
+    // --flat: o programa é achatado em arrays (FlatAst) e executado pelo FlatInterpreter
+    private static boolean flat = false;
+    // --daemon=socket: fica atendendo execuções pelo socket Unix em vez de rodar um script
+    private static Path daemonSocket = null;
+    // --batch=diretório|glob: roda muitos scripts num processo só (ver Batch)
+    private static String batch = null;
+    // --batch-output=dir: onde o --batch grava a saída capturada de cada script
+    private static Path batchOutput = null;
+    // --workers=n: threads do --batch e do --daemon (padrão: uma por processador)
+    private static int workers = Runtime.getRuntime().availableProcessors();
+    // --fuel=n: limite de execução por script, em voltas de laço e chamadas (ver Fuel)
+    private static long fuel = Fuel.UNLIMITED;
+    // --allocations=n[k|m|g]: orçamento de alocação por script, em bytes alocados (ver AllocationBudget)
+    private static long allocations = AllocationBudget.UNLIMITED;
+    // --profile=arquivo: amostra a pilha Lox e grava as pilhas no formato collapsed (ver Profiler)
+    private static Path profile = null;
+    private static Profiler profiler = null;
+    // --connect=socket: cliente do daemon, roda o script lá e repassa saída e código de saída
+    private static Path connectSocket = null;
+
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
+        List<String> scripts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--pipeline")) {
+                pipelined = true;
+            } else if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.equals("--single-pass")) {
+                singlePass = true;
+            } else if (arg.equals("--lazy")) {
+                lazy = true;
+            } else if (arg.equals("--flat")) {
+                flat = true;
+            } else if (arg.equals("--cache")) {
+                cacheDirectory = AstCache.defaultDirectory();
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = Paths.get(arg.substring("--cache=".length()));
+            } else if (arg.startsWith("--snapshot=")) {
+                snapshot = Paths.get(arg.substring("--snapshot=".length()));
+            } else if (arg.startsWith("--daemon=")) {
+                daemonSocket = Paths.get(arg.substring("--daemon=".length()));
+            } else if (arg.startsWith("--batch=")) {
+                batch = arg.substring("--batch=".length());
+            } else if (arg.startsWith("--batch-output=")) {
+                batchOutput = Paths.get(arg.substring("--batch-output=".length()));
+            } else if (arg.startsWith("--workers=")) {
+                workers = (int) Math.min(Integer.MAX_VALUE, positive(arg, "--workers=", "<count>"));
+            } else if (arg.startsWith("--fuel=")) {
+                fuel = positive(arg, "--fuel=", "<units>");
+            } else if (arg.startsWith("--allocations=")) {
+                allocations = bytes(arg);
+            } else if (arg.startsWith("--profile=")) {
+                profile = Paths.get(arg.substring("--profile=".length()));
+            } else if (arg.startsWith("--connect=")) {
+                connectSocket = Paths.get(arg.substring("--connect=".length()));
+            } else if (arg.startsWith("--save-snapshot=")) {
+                saveSnapshot = Paths.get(arg.substring("--save-snapshot=".length()));
+            } else {
+                scripts.add(arg);
+            }
+        }
+
+        if (daemonSocket != null) {
+            new Daemon(workers, fuel, allocations).serve(daemonSocket);
+            return;
+        }
+        if (batch != null) {
+            int status = new Batch(workers, fuel, allocations, batchOutput).run(batch);
+            if (status != 0) System.exit(status);
+            return;
+        }
+        if (connectSocket != null) {
+            if (scripts.size() != 1) {
+                System.out.println("Usage: jlox --connect=<socket> [script]");
+                System.exit(64);
+            }
+            int status = Daemon.connect(connectSocket, scripts.get(0));
+            if (status != 0) System.exit(status);
+            return;
+        }
+
+        if (flat) {
+            // Corpos adiados não podem ser achatados
+            interpreter = new FlatInterpreter();
+            lazy = false;
+        }
+
+        if (fuel != Fuel.UNLIMITED) interpreter.fuel = new Fuel(fuel, null);
+        if (allocations != AllocationBudget.UNLIMITED) interpreter.allocations = new AllocationBudget(allocations);
+        if (profile != null) {
+            profiler = new Profiler();
+            interpreter.profile(profiler);
+            profiler.start();
+        }
+
+        if (snapshot != null) {
+            try {
+                Snapshot.load(snapshot, interpreter);
+            } catch (IOException e) {
+                System.err.println("Could not load snapshot '" + snapshot + "'.");
+                System.exit(66);
+            }
+        }
+
+        if (saveSnapshot != null) {
+            if (scripts.size() != 1) {
+                System.out.println("Usage: jlox --save-snapshot=<file> [script]");
+                System.exit(64);
+            }
+            savePrelude(scripts.get(0));
+        } else if (parallel) {
+            if (scripts.isEmpty()) {
+                System.out.println("Usage: jlox --parallel [script...]");
+                System.exit(64);
+            }
+            int status = new ParallelCompiler().run(scripts);
+            if (status != 0) System.exit(status);
+        } else if (scripts.size() > 1) {
             System.out.println("Usage: jlox [script]");
             System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        } else if (scripts.size() == 1) {
+            runFile(scripts.get(0));
         } else {
             runPrompt();
         }
     }
     
+    // Inteiro positivo de uma opção '--nome=n'; qualquer outra coisa é erro de uso, como os demais
+    private static long positive(String arg, String option, String placeholder) {
+        try {
+            long value = Long.parseLong(arg.substring(option.length()));
+            if (value > 0) return value;
+        } catch (NumberFormatException e) {
+            // Cai no uso abaixo
+        }
+        System.out.println("Usage: jlox " + option + placeholder + " [script]");
+        System.exit(64);
+        return 0;
+    }
+
+    // "--allocations=512", "64k", "256m", "2g"; sem número ou sem caber num long é erro de uso
+    private static long bytes(String arg) {
+        String text = arg.substring("--allocations=".length());
+        if (!text.isEmpty()) {
+            char unit = Character.toLowerCase(text.charAt(text.length() - 1));
+            int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : 0;
+            if (shift != 0) text = text.substring(0, text.length() - 1);
+            try {
+                long value = Long.parseLong(text);
+                if (value > 0 && value <= Long.MAX_VALUE >> shift) return value << shift;
+            } catch (NumberFormatException e) {
+                // Cai no uso abaixo
+            }
+        }
+        System.out.println("Usage: jlox --allocations=<bytes>[k|m|g] [script]");
+        System.exit(64);
+        return 0;
+    }
+
     private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-        
+        Path directory = Paths.get(path).toAbsolutePath().getParent();
+        // O arquivo é mapeado em memória e escaneado direto dos bytes UTF-8, sem virar String
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (cacheDirectory != null && !lazy) {
+                runCached(path, bytes, directory);
+            } else if (pipelined) {
+                List<Stmt> statements = new PipelinedFrontEnd().compile(bytes, interpreter);
+                if (statements != null && link(statements, directory)) interpreter.interpret(statements);
+            } else {
+                run(new ByteScanner(bytes).scan(), lazy, directory);
+            }
+        }
+        LoxTask.awaitAll();
+        if (profiler != null) finishProfile();
+
         if (hadError) System.exit(65);       
         if (hadRuntimeError) System.exit(70);  
     }
     
+    private static void finishProfile() {
+        profiler.stop();
+        try {
+            profiler.writeCollapsed(profile);
+        } catch (IOException e) {
+            System.err.println("Could not write profile '" + profile + "'.");
+        }
+        profiler.report(System.err);
+    }
+
+    private static void runCached(String path, MappedByteBuffer bytes, Path directory) {
+        AstCache cache = new AstCache(cacheDirectory);
+        String key = cache.key(bytes);
+        CompilationUnit unit = cache.load(path, key);
+        if (unit == null) {
+            unit = new CompilationUnit(path);
+            unit.compile(bytes);
+            if (unit.compiled()) cache.store(key, unit);
+        }
+
+        unit.diagnostics.flush(System.err, System.out);
+        if (!unit.compiled()) {
+            hadError = true;
+            return;
+        }
+        if (!link(unit.statements, directory)) return;
+        interpreter.resolve(unit.locals);
+        interpreter.interpret(unit.statements);
+    }
+
+    // Roda o prelúdio e grava os globais; só grava se o prelúdio terminou sem erro
+    private static void savePrelude(String path) throws IOException {
+        CompilationUnit unit = new CompilationUnit(path);
+        unit.compile();
+        unit.diagnostics.flush(System.err, System.out);
+        if (!unit.compiled()) System.exit(65);
+        if (!link(unit.statements, Paths.get(path).toAbsolutePath().getParent())) System.exit(65);
+
+        interpreter.resolve(unit.locals);
+        interpreter.interpret(unit.statements);
+        if (hadRuntimeError) System.exit(70);
+
+        try {
+            Snapshot.save(saveSnapshot, interpreter, unit.statements, unit.locals);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(70);
+        }
+    }
+
     private static void runPrompt() throws IOException {
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
+        // Tudo que já foi digitado: cada linha nova só analisa a si mesma, e o resolver
+        // continua sabendo os tipos das variáveis das linhas anteriores
+        IncrementalFrontEnd buffer = new IncrementalFrontEnd();
         
         while(true) {
             System.out.print("> ");
             String line = reader.readLine();
             if (line == null) break;
             
-            run(line);
+            run(buffer, line);
             
             hadError = false;
             hadRuntimeError = false;
         }
     }
     
-    private static void run(String source) {
-        // Análise léxica
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        
+    private static void run(IncrementalFrontEnd buffer, String line) {
+        String previous = buffer.source();
+        List<Stmt> statements = buffer.update(previous.isEmpty() ? line : previous + "\n" + line);
+        buffer.report(diagnostics);
+
+        if (hadError) {
+            // A linha com erro sai do buffer para não atrapalhar as próximas
+            buffer.update(previous);
+            return;
+        }
+        if (!link(statements, Paths.get(""))) return;
+
+        interpreter.resolve(buffer.freshLocals());
+        interpreter.interpret(statements);
+    }
+
+    private static void run(TokenBuffer tokens, boolean lazyBodies, Path directory) {
         if (hadError) return;
         
         // Análise sintática
         Parser parser = new Parser(tokens);
+        if (lazyBodies) parser.lazyBodies();
+        // Na passada única o que o resolver reporta espera o parser terminar, para sair na mesma ordem
+        Diagnostics resolution = new Diagnostics();
+        if (singlePass) parser.resolving(new Resolver(interpreter, resolution));
         List<Stmt> statements = parser.parse();
         
 
         if (hadError) return;
         
         // Resolução de variáveis
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
+        if (singlePass) {
+            resolution.forward(diagnostics, "");
+        } else {
+            Resolver resolver = new Resolver(interpreter);
+            resolver.resolve(statements);
+        }
         
         if (hadError) return;
+
+        // Módulos importados compilam em paralelo antes da execução
+        if (!link(statements, directory)) return;
         
         interpreter.interpret(statements);
     }
     
 
+    // Erros nos módulos importados contam como erros de compilação do script
+    private static boolean link(List<Stmt> statements, Path directory) {
+        return Module.link(statements, directory, diagnostics);
+    }
+
     //Reportes de erros do Lox
     public static void error(int line, String message) {
-        report(line, "", message);
+        diagnostics.error(line, message);
     }
     public static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
-        }
+        diagnostics.error(token, message);
     }
     public static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() + "\n[line " + error.token.line + "]");
+        LoxEvents.runtimeError(error);
+        System.err.println(error.getMessage() + "\n[line " + (error.token != null ? error.token.line : 0) + "]");
         hadRuntimeError = true;
     }
-    private static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package lox_compiladores;
+
+import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Canal entre tarefas Lox, de vários produtores e vários consumidores. Os valores ficam numa fila
+// sem locks; quem não pode continuar (canal cheio ou vazio) entra na fila de espera do lado dele,
+// confere de novo e estaciona com LockSupport, o que numa virtual thread só libera o carrier.
+// Quem muda o estado do canal acorda um da fila do outro lado.
+final class LoxChannel {
+    // A fila não aceita null, então nil viaja como NIL
+    private static final Object NIL = new Object();
+    // Resultado de select: instância com os campos 'channel' e 'value'
+    private static final LoxClasses SELECTION = new LoxClasses("Selection", null, new HashMap<>());
+    private static final Symbol CHANNEL = Symbol.intern("channel");
+    private static final Symbol VALUE = Symbol.intern("value");
+
+    // 0 = sem limite
+    private final int capacity;
+    private final Queue<Object> items = new ConcurrentLinkedQueue<>();
+    // Vagas reservadas por quem está enviando ou já enviou e ainda não foi recebido
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final Queue<Thread> receivers = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> senders = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    LoxChannel(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void send(Object value) {
+        if (capacity > 0) {
+            while (!reserve()) {
+                Thread self = Thread.currentThread();
+                senders.add(self);
+                // Confere de novo depois de entrar na fila: um receive entre o teste e o park não se perde
+                if (!closed && reserved.get() >= capacity) LockSupport.park(this);
+                senders.remove(self);
+            }
+        }
+        if (closed) throw new RuntimeError(null, "Send on a closed channel.");
+        items.add(value == null ? NIL : value);
+        wake(receivers);
+    }
+
+    private boolean reserve() {
+        while (true) {
+            if (closed) return true;
+            int count = reserved.get();
+            if (count >= capacity) return false;
+            if (reserved.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    // Espera um valor; num canal fechado e vazio devolve nil
+    Object receive() {
+        while (true) {
+            Object value = poll();
+            if (value != null) return value == NIL ? null : value;
+            if (closed && items.isEmpty()) return null;
+
+            Thread self = Thread.currentThread();
+            receivers.add(self);
+            if (items.isEmpty() && !closed) LockSupport.park(this);
+            receivers.remove(self);
+        }
+    }
+
+    private Object poll() {
+        Object value = items.poll();
+        if (value == null) return null;
+        if (capacity > 0) {
+            reserved.decrementAndGet();
+            wake(senders);
+        }
+        // Se sobrou valor, passa a vez para outro consumidor que possa estar estacionado
+        if (!items.isEmpty()) wake(receivers);
+        return value;
+    }
+
+    void close() {
+        closed = true;
+        for (Thread thread : receivers) LockSupport.unpark(thread);
+        for (Thread thread : senders) LockSupport.unpark(thread);
+    }
+
+    // Recebe do primeiro dos dois canais que tiver valor. Devolve uma Selection com o canal e o valor,
+    // ou nil se os dois estiverem fechados e vazios. Com os dois prontos a escolha é sorteada, como no
+    // select do Go: olhar sempre o primeiro antes deixaria o segundo sem vez enquanto o primeiro tiver valor
+    static Object select(LoxChannel first, LoxChannel second) {
+        Thread self = Thread.currentThread();
+        while (true) {
+            boolean swap = ThreadLocalRandom.current().nextBoolean();
+            LoxChannel from = swap ? second : first;
+            Object value = from.poll();
+            if (value == null) {
+                from = swap ? first : second;
+                value = from.poll();
+            }
+            if (value != null) return selection(from, value == NIL ? null : value);
+            if (first.finished() && second.finished()) return null;
+
+            first.receivers.add(self);
+            second.receivers.add(self);
+            if (first.waiting() && second.waiting()) LockSupport.park(first);
+            first.receivers.remove(self);
+            second.receivers.remove(self);
+            // O aviso que nos acordou pode ter sido de um canal que não vamos ler agora: repassa
+            if (!first.items.isEmpty()) wake(first.receivers);
+            if (!second.items.isEmpty()) wake(second.receivers);
+        }
+    }
+
+    private boolean finished() {
+        return closed && items.isEmpty();
+    }
+
+    // Ainda sem valor, mas pode vir a ter
+    private boolean waiting() {
+        return items.isEmpty() && !closed;
+    }
+
+    private static Object selection(LoxChannel channel, Object value) {
+        LoxInstance selection = new LoxInstance(SELECTION);
+        selection.set(CHANNEL, channel);
+        selection.set(VALUE, value);
+        return selection;
+    }
+
+    private static void wake(Queue<Thread> waiters) {
+        Thread thread = waiters.poll();
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
@@ -8,18 +8,19 @@ class LoxClasses implements LoxCallable{
 	final String name;
 	final LoxClasses superclass;
 	
-	private final Map<String, LoxFunc> methods;
+	private final Map<Symbol, LoxFunc> methods;
 
 	
-	public LoxClasses(String name, LoxClasses superclass, Map<String, LoxFunc> methods) {
+	public LoxClasses(String name, LoxClasses superclass, Map<Symbol, LoxFunc> methods) {
 		this.name = name;
 		this.superclass = superclass;
 		this.methods = methods;
 	}
 	
-	LoxFunc findMethod(String name) {
-		if(methods.containsKey(name)) {
-			return methods.get(name);
+	LoxFunc findMethod(Symbol name) {
+		LoxFunc method = methods.get(name);
+		if(method != null) {
+			return method;
 		}
 		if(superclass != null) {
 			return superclass.findMethod(name);
@@ -27,20 +28,32 @@ class LoxClasses implements LoxCallable{
 		return null;
 	}
 	
+	Map<Symbol, LoxFunc> methods() {
+		return methods;
+	}
+
 	@Override
 	public int ParamNumbs() {
-		LoxFunc init = findMethod("init");
+		LoxFunc init = findMethod(Symbol.INIT);
 		if(init == null) return 0;
 		return init.ParamNumbs();
 	}
 
 	@Override
 	public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+		interpreter.allocate(AllocationBudget.INSTANCE, 0);
+		LoxEvents.Instantiation event = LoxEvents.ENABLED ? new LoxEvents.Instantiation() : null;
+		if (event != null) event.begin();
 		LoxInstance instance = new LoxInstance(this);
-		LoxFunc init = findMethod("init");
+		LoxFunc init = findMethod(Symbol.INIT);
 		if(init != null) {
+			interpreter.allocate(AllocationBudget.FRAME + AllocationBudget.CLOSURE, 0);
 			init.bind(instance).call(interpreter, arguments);
 		}
+		if (event != null) {
+			event.className = name;
+			event.commit();
+		}
 		return instance;
 	}
 	
@@ -0,0 +1,74 @@
+package lox_compiladores;
+
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+
+// Uma execução isolada de um LoxProgram: globais, módulos importados e erros próprios. Contextos do
+// mesmo programa rodam em paralelo sem compartilhar nada além da AST e da tabela de resolução.
+// Um contexto é usado por uma thread de cada vez (as tarefas de spawn têm seu próprio estado).
+public final class LoxContext {
+    private final LoxProgram program;
+    private final Diagnostics diagnostics;
+    private final LoxInterpreter interpreter;
+    private long fuelLimit = Fuel.UNLIMITED;
+    private Semaphore slots = null;
+    private AllocationBudget allocations = null;
+
+    LoxContext(LoxProgram program, PrintStream out, PrintStream err) {
+        this.program = program;
+        this.diagnostics = new Diagnostics(err, err);
+        // Erros e avisos dos módulos ligados na compilação já estão em program.warnings()
+        Module.reported(program.modules(), diagnostics);
+        this.interpreter = new LoxInterpreter(diagnostics, program.locals(), out);
+    }
+
+    // Roda o programa (e espera as tarefas que ele criou) e devolve o código de saída do jlox:
+    // 0, ou 70 se houve erro de execução
+    public int run() {
+        Fuel fuel = fuelLimit == Fuel.UNLIMITED && slots == null ? null : new Fuel(fuelLimit, slots);
+        interpreter.fuel = fuel;
+        interpreter.allocations = allocations;
+        if (fuel != null) fuel.enter(interpreter);
+        try {
+            interpreter.interpret(program.statements());
+        } finally {
+            if (fuel != null) fuel.exit(interpreter);
+        }
+        LoxTask.awaitAll(diagnostics);
+        return diagnostics.hadRuntimeError() ? 70 : 0;
+    }
+
+    // Limite de execução, em unidades (uma por volta de laço e por chamada de função, somando as tarefas
+    // do script). Ao passar dele o script para com o erro de execução "Fuel exhausted."
+    public void limitFuel(long units) {
+        fuelLimit = units;
+    }
+
+    // Orçamento de alocação, em bytes estimados de tudo que o script (e suas tarefas) aloca: instâncias,
+    // campos, strings concatenadas, escopos e closures. Ao passar dele o script para com o erro de
+    // execução "Allocation budget exceeded."; conta o alocado, não o que segue vivo (ver AllocationBudget)
+    public void limitAllocations(long bytes) {
+        allocations = bytes == AllocationBudget.UNLIMITED ? null : new AllocationBudget(bytes);
+    }
+
+    // Bytes contados até agora pelo orçamento de alocação (0 sem orçamento)
+    public long allocated() {
+        return allocations == null ? 0 : allocations.allocated();
+    }
+
+    // Revezamento de CPU entre contextos: o script só executa segurando uma vaga de 'slots' (que deve ser
+    // justo, new Semaphore(n, true)) e volta para o fim da fila a cada poucos milhares de unidades
+    public void shareCpu(Semaphore slots) {
+        this.slots = slots;
+    }
+
+    // Variáveis globais do contexto, para passar entradas antes de run e ler resultados depois.
+    // Valores Lox: null (nil), Boolean, Double, String ou objetos devolvidos pelo próprio Lox
+    public void define(String name, Object value) {
+        interpreter.globals.define(name, value);
+    }
+
+    public Object get(String name) {
+        return interpreter.globals.getAt(0, Symbol.intern(name));
+    }
+}
@@ -0,0 +1,83 @@
+package lox_compiladores;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Eventos do Java Flight Recorder com o que acontece no nível do Lox, para cruzar com GC e JIT na mesma
+// gravação. Desligados por padrão: só com -Dlox.jfr=true o interpretador cria eventos, e aí eles entram em
+// qualquer gravação do JFR que estiver rodando (lox.Call só acima de 1 ms, ajustável nas configurações).
+// Sem a propriedade, ENABLED é uma constante false que o JIT apaga, e nenhuma classe do jdk.jfr é
+// carregada: só carregar o JFR já custaria centenas de milissegundos na subida.
+final class LoxEvents {
+    static final boolean ENABLED = Boolean.getBoolean("lox.jfr");
+
+    private LoxEvents() {}
+
+    @Name("lox.Call")
+    @Label("Lox Call")
+    @Category("Lox")
+    @Description("Lox function or method call that took longer than the threshold")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Call extends Event {
+        @Label("Function")
+        String function;
+
+        @Label("Line")
+        @Description("Line where the function is declared")
+        int line;
+    }
+
+    @Name("lox.Instantiation")
+    @Label("Lox Instantiation")
+    @Category("Lox")
+    @Description("Instance created by calling a Lox class, including its init")
+    @StackTrace(false)
+    static final class Instantiation extends Event {
+        @Label("Class")
+        String className;
+    }
+
+    @Name("lox.RuntimeError")
+    @Label("Lox Runtime Error")
+    @Category("Lox")
+    @Description("Runtime error that stopped a script or a task")
+    @StackTrace(false)
+    static final class Error extends Event {
+        @Label("Message")
+        String message;
+
+        @Label("Line")
+        int line;
+    }
+
+    @Name("lox.Compile")
+    @Label("Lox Compilation Phase")
+    @Category("Lox")
+    @Description("Time spent in one front-end phase")
+    @StackTrace(false)
+    static final class Compile extends Event {
+        static final String SCANNER = "Scanner", PARSER = "Parser", RESOLVER = "Resolver";
+
+        @Label("Phase")
+        String phase;
+
+        Compile(String phase) {
+            this.phase = phase;
+        }
+    }
+
+    static void runtimeError(RuntimeError error) {
+        if (!ENABLED) return;
+        Error event = new Error();
+        if (!event.shouldCommit()) return;
+        event.message = error.getMessage();
+        event.line = error.token != null ? error.token.line : 0;
+        event.commit();
+    }
+}
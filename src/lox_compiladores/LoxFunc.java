@@ -7,11 +7,18 @@ public class LoxFunc implements LoxCallable {
 	private final Stmt.Function declaration;
 	private final Environment closure;
 	private final boolean isInitializer;
+	// Globais do módulo onde a função foi declarada: a raiz da cadeia de escopos da closure
+	private final Environment globals;
 	
 	public LoxFunc(Stmt.Function declaration, Environment closure, boolean isinitializer) {
+		this(declaration, closure, isinitializer, closure.ancestor(closure.depth()));
+	}
+
+	private LoxFunc(Stmt.Function declaration, Environment closure, boolean isinitializer, Environment globals) {
 		this.declaration = declaration;
 		this.closure = closure;
 		this.isInitializer = isinitializer;
+		this.globals = globals;
 	}
 
 	@Override
@@ -21,26 +28,72 @@ public class LoxFunc implements LoxCallable {
 
 	@Override
 	public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-		Environment environment = new Environment(closure);
+		return invoke(interpreter, closure, arguments);
+	}
+
+	// Chama o método já ligado a 'instance' sem criar um LoxFunc intermediário (usado pelo super)
+	Object callBound(LoxInterpreter interpreter, LoxInstance instance, List<Object> arguments) {
+		interpreter.allocate(AllocationBudget.FRAME, 0);
+		Environment bound = new Environment(closure);
+		bound.define(Symbol.THIS, instance);
+		return invoke(interpreter, bound, arguments);
+	}
+
+	private Object invoke(LoxInterpreter interpreter, Environment scope, List<Object> arguments) {
+		interpreter.tick();
+		interpreter.allocate(AllocationBudget.FRAME, 0);
+		Environment environment = new Environment(scope);
 		for (int i = 0 ;i < declaration.params.size();i++) {
 			environment.define(declaration.params.get(i), arguments.get(i));
-			
-			try {
-				interpreter.executeBlock(declaration.body, environment);
-			}catch(Return returnValue) {
-				if (isInitializer) return closure.getAt(0, "this");
-				return returnValue.value;
+		}
+
+		Profiler.Stack stack = interpreter.stack;
+		if (stack != null) stack.push(declaration);
+		LoxEvents.Call event = LoxEvents.ENABLED ? new LoxEvents.Call() : null;
+		if (event != null) event.begin();
+		try {
+			interpreter.executeFunction(declaration, environment, globals);
+		}catch(Return returnValue) {
+			if (isInitializer) return scope.getAt(0, Symbol.THIS);
+			return returnValue.value;
+		} finally {
+			if (stack != null) stack.pop();
+			if (event != null) event.end();
+			if (event != null && event.shouldCommit()) {
+				event.function = label(scope);
+				event.line = declaration.name.line;
+				event.commit();
 			}
 		}
-		if(isInitializer) return closure.getAt(0, "this");
+		if(isInitializer) return scope.getAt(0, Symbol.THIS);
 		return null;
 	}
 
+	// "Classe.metodo" quando a chamada tem um 'this' no escopo ligado, senão só o nome
+	private String label(Environment scope) {
+		Object self = scope.getAt(0, Symbol.THIS);
+		if (self instanceof LoxInstance) return ((LoxInstance) self).klass().name + "." + declaration.name.lexeme;
+		return declaration.name.lexeme;
+	}
+
 	public LoxFunc bind(LoxInstance instance) {
 		Environment environment = new Environment(closure);
-		environment.define("this", instance);
-		return new LoxFunc(declaration,environment,isInitializer);
+		environment.define(Symbol.THIS, instance);
+		return new LoxFunc(declaration,environment,isInitializer,globals);
 	}
+
+	Stmt.Function declaration() {
+		return declaration;
+	}
+
+	Environment closure() {
+		return closure;
+	}
+
+	boolean isInitializer() {
+		return isInitializer;
+	}
+
 	public String toString() {
 		return "<fn " + declaration.name.lexeme+ ">";
 	}
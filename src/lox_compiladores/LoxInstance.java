@@ -2,28 +2,47 @@ package lox_compiladores;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LoxInstance {
+    // Campos podem ser lidos e escritos por várias tarefas; nil fica guardado como NIL
+    private static final Object NIL = new Object();
     private LoxClasses klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    private final Map<Symbol, Object> fields = new ConcurrentHashMap<>();
 
     public LoxInstance(LoxClasses klass) {
         this.klass = klass;
     }
 
-    public Object get(Token name) {
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+    // 'line' só serve para a mensagem de erro
+    public Object get(Symbol name, int line) {
+        Object value = fields.get(name);
+        if (value != null) {
+            return value == NIL ? null : value;
         }
 
-        LoxFunc method = klass.findMethod(name.lexeme);
+        LoxFunc method = klass.findMethod(name);
         if (method != null) return method.bind(this);
 
-        throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+        throw new RuntimeError(Token.at(name, line), "Undefined property '" + name.name + "'.");
     }
 
-    public void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+    // true se o campo é novo
+    public boolean set(Symbol name, Object value) {
+        return fields.put(name, value == null ? NIL : value) == null;
+    }
+
+    LoxClasses klass() {
+        return klass;
+    }
+
+    // Cópia dos campos, com nil como null (usada pelo snapshot)
+    Map<Symbol, Object> fields() {
+        Map<Symbol, Object> copy = new HashMap<>();
+        for (Map.Entry<Symbol, Object> entry : fields.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue() == NIL ? null : entry.getValue());
+        }
+        return copy;
     }
 
     @Override
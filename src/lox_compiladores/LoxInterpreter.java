@@ -1,9 +1,14 @@
 package lox_compiladores;
 
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import lox_compiladores.Expr.BinaryOp;
 import lox_compiladores.Expr.CallExpr;
@@ -19,98 +24,88 @@ import lox_compiladores.Expr.SetProp;
 
 public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Visitor<Void> {
 
-    final Environment globals = new Environment();
-    private Environment environment = globals;
-    private final Map<Expr, Integer> locals = new HashMap<>();
+    // Globais do módulo em execução: trocam ao importar e ao chamar uma função de outro módulo
+    Environment globals = new Environment();
+    // Escopo atual; este campo e 'globals' são o estado de execução, um por thread (ver fork)
+    Environment environment = globals;
+    // Concorrente: corpos preguiçosos são resolvidos na primeira chamada, que pode vir de qualquer tarefa
+    final Map<Expr, Integer> locals;
+    // Tabela de um LoxProgram, compartilhada entre contextos: já inclui a dos módulos e não recebe escritas
+    private final boolean sharedLocals;
+    final Diagnostics diagnostics;
+    // Destino de print e println
+    final PrintStream out;
+    // Módulos já executados por este interpretador (e pelas tarefas dele), com os globais de cada um
+    private final Map<Module, Environment> modules;
+    // Orçamento compartilhado pelo script e suas tarefas (null = sem limite) e o que resta do quantum
+    // que esta thread já pegou dele
+    Fuel fuel;
+    private int quantum = 0;
+    // Esta thread está segurando uma vaga do revezamento de CPU (ver Fuel)
+    boolean holdsSlot = false;
+    // Profiler ligado (null = desligado) e a pilha sombra desta thread
+    Profiler profiler;
+    Profiler.Stack stack;
+    // Orçamento de alocação do script (null = sem limite) e o crédito de bytes que esta thread já pegou dele
+    AllocationBudget allocations;
+    private long credit = 0;
+    // Cache de cada sítio super.metodo: distância do 'super', último escopo dele e o método achado nesse
+    // escopo. Fica aqui e não na AST, que um LoxProgram compartilha entre contextos; cada thread (fork)
+    // tem o seu, criado no primeiro super
+    private Map<SuperCall, SuperSite> superSites;
+
+    private static final class SuperSite {
+        final int depth;
+        Environment scope;
+        LoxFunc method;
+
+        SuperSite(int depth) {
+            this.depth = depth;
+        }
+    }
 
 
     LoxInterpreter() {
-        // Função nativa clock
-        globals.define("clock", new LoxCallable() {
-            @Override
-            public int ParamNumbs() { return 0; }
-            
-            @Override
-            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-                return (double)System.currentTimeMillis() / 1000.0;
-            }
-            
-            @Override
-            public String toString() { return "<native fn>"; }
-        });
-        
-        // Função nativa print (alternativa)
-        globals.define("println", new LoxCallable() {
-            @Override
-            public int ParamNumbs() { return 1; }
-            
-            @Override
-            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-                System.out.println(stringify(arguments.get(0)));
-                return null;
-            }
-            
-            @Override
-            public String toString() { return "<native fn>"; }
-        });
-        
-        // Função nativa para converter para string
-        globals.define("str", new LoxCallable() {
-            @Override
-            public int ParamNumbs() { return 1; }
-            
-            @Override
-            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-                return stringify(arguments.get(0));
-            }
-            
-            @Override
-            public String toString() { return "<native fn>"; }
-        });
-        
-        // Função nativa para converter para número
-        globals.define("num", new LoxCallable() {
-            @Override
-            public int ParamNumbs() { return 1; }
-            
-            @Override
-            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-                Object arg = arguments.get(0);
-                if (arg instanceof Double) return arg;
-                if (arg instanceof String) {
-                    try {
-                        return Double.parseDouble((String) arg);
-                    } catch (NumberFormatException e) {
-                        throw new RuntimeError(null, "Cannot convert '" + arg + "' to number.");
-                    }
-                }
-                throw new RuntimeError(null, "Cannot convert to number.");
-            }
-            
-            @Override
-            public String toString() { return "<native fn>"; }
-        });
-        
-        // Função nativa para verificar tipo
-        globals.define("type", new LoxCallable() {
-            @Override
-            public int ParamNumbs() { return 1; }
-            
-            @Override
-            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
-                Object arg = arguments.get(0);
-                if (arg == null) return "nil";
-                if (arg instanceof Boolean) return "boolean";
-                if (arg instanceof Double) return "number";
-                if (arg instanceof String) return "string";
-                if (arg instanceof LoxCallable) return "function";
-                if (arg instanceof LoxInstance) return "instance";
-                return "unknown";
-            }
-            
-            @Override
-            public String toString() { return "<native fn>"; }
-        });
+        this(Lox.diagnostics);
+    }
+
+    LoxInterpreter(Diagnostics diagnostics) {
+        this(diagnostics, new ConcurrentHashMap<>(), false, System.out);
+    }
+
+    // Contexto de um LoxProgram: globais próprios, tabela de resolução do programa, saída própria
+    LoxInterpreter(Diagnostics diagnostics, Map<Expr, Integer> programLocals, PrintStream out) {
+        this(diagnostics, programLocals, true, out);
+    }
+
+    private LoxInterpreter(Diagnostics diagnostics, Map<Expr, Integer> locals, boolean sharedLocals, PrintStream out) {
+        this.diagnostics = diagnostics;
+        this.locals = locals;
+        this.sharedLocals = sharedLocals;
+        this.out = out;
+        this.modules = new HashMap<>();
+
+        Natives.define(globals);
+    }
+
+    // Interpretador para outra thread: escopo atual próprio, mas os mesmos globais, tabela de resolução,
+    // módulos, saída e diagnósticos de 'parent'
+    LoxInterpreter(LoxInterpreter parent) {
+        this.diagnostics = parent.diagnostics;
+        this.locals = parent.locals;
+        this.sharedLocals = parent.sharedLocals;
+        this.out = parent.out;
+        this.modules = parent.modules;
+        this.fuel = parent.fuel;
+        this.allocations = parent.allocations;
+        this.profiler = parent.profiler;
+        this.stack = profiler == null ? null : profiler.taskStack();
+        this.globals = parent.globals;
+        this.environment = globals;
+    }
+
+    LoxInterpreter fork() {
+        return new LoxInterpreter(this);
     }
 
 
@@ -120,7 +115,74 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
                 execute(statement);
             }
         } catch (RuntimeError error) {
-            Lox.runtimeError(error);
+            diagnostics.runtimeError(error);
+        }
+    }
+
+    // Uma unidade de combustível: a cada volta de laço e a cada chamada de função Lox. Sem limite,
+    // o quantum é tão grande que o caminho lento praticamente nunca roda
+    final void tick() {
+        if (--quantum < 0) quantum = fuel == null ? Integer.MAX_VALUE : fuel.refill(this);
+    }
+
+    // Começo de um interpretador de tarefa ou de pedaço paralelo, já na thread dele: com revezamento
+    // de CPU, ele também só roda segurando uma vaga
+    void begin() {
+        if (fuel != null) fuel.enter(this);
+    }
+
+    // Fim de um interpretador de tarefa ou de pedaço paralelo: a vaga, o combustível e o crédito de
+    // alocação que ele pegou e não usou voltam para o script
+    void finish() {
+        if (fuel != null) {
+            if (quantum > 0) fuel.giveBack(quantum);
+            fuel.exit(this);
+        }
+        quantum = 0;
+        if (allocations != null) allocations.giveBack(credit);
+        credit = 0;
+    }
+
+    // Nativas que estacionam a thread (join, send, receive, select, nativas paralelas) largam a vaga
+    // enquanto esperam: um script parado num canal não prende os outros
+    <T> T blocking(Supplier<T> wait) {
+        if (!holdsSlot) return wait.get();
+        fuel.exit(this);
+        try {
+            return wait.get();
+        } finally {
+            fuel.enter(this);
+        }
+    }
+
+    void profile(Profiler profiler) {
+        this.profiler = profiler;
+        this.stack = profiler.stack();
+    }
+
+    // Conta 'bytes' alocados em nome do script; 'line' vai na mensagem se o orçamento estourar (0 se não há)
+    final void allocate(int bytes, int line) {
+        if ((credit -= bytes) < 0) refillAllocations(line);
+    }
+
+    private void refillAllocations(int line) {
+        if (allocations == null) {
+            credit = Long.MAX_VALUE;
+            return;
+        }
+        try {
+            credit = allocations.refill(-credit);
+        } catch (RuntimeError error) {
+            throw line == 0 ? error : atCallSite(error, line);
+        }
+    }
+
+    // Volta de laço: o erro de combustível esgotado aponta para o laço
+    final void tick(int line) {
+        try {
+            tick();
+        } catch (RuntimeError error) {
+            throw atCallSite(error, line);
         }
     }
 
@@ -137,16 +199,17 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     public Object evaluateSet(SetProp expr) {
         Object object = evaluate(expr.object);
         if (!(object instanceof LoxInstance)) {
-            throw new RuntimeError(expr.property, "Only instances have fields.");
+            throw new RuntimeError(expr.property(), "Only instances have fields.");
         }
         Object value = evaluate(expr.value);
-        ((LoxInstance) object).set(expr.property, value);
+        if (((LoxInstance) object).set(expr.name, value)) allocate(AllocationBudget.FIELD, expr.line);
         return value;
     }
 
     // Implementações dos visit... (já existiam)
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
+        allocate(AllocationBudget.FRAME, stmt.line);
         executeBlock(stmt.statements, new Environment(environment));
         return null;
     }
@@ -161,17 +224,18 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
             }
         }
 
-        environment.define(stmt.name.lexeme, null);
+        environment.define(stmt.name, null);
 
         if (stmt.superclass != null) {
             environment = new Environment(environment);
-            environment.define("super", superclass);
+            environment.define(Symbol.SUPER, superclass);
         }
 
-        Map<String, LoxFunc> methods = new HashMap<>();
+        Map<Symbol, LoxFunc> methods = new HashMap<>();
         for (Stmt.Function method : stmt.methods) {
-            LoxFunc function = new LoxFunc(method, environment, method.name.lexeme.equals("init"));
-            methods.put(method.name.lexeme, function);
+            LoxFunc function = new LoxFunc(method, environment, method.name.symbol == Symbol.INIT);
+            if (profiler != null) profiler.method(method, stmt.name.lexeme);
+            methods.put(method.name.symbol, function);
         }
 
         LoxClasses klass = new LoxClasses(stmt.name.lexeme, (LoxClasses)superclass, methods);
@@ -192,8 +256,38 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
+        allocate(AllocationBudget.CLOSURE, stmt.name.line);
         LoxFunc function = new LoxFunc(stmt, environment, false);
-        environment.define(stmt.name.lexeme, function);
+        environment.define(stmt.name, function);
+        return null;
+    }
+
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        if (stmt.module == null) Module.link(List.of(stmt), Paths.get(""));
+        Module module = stmt.module;
+
+        Environment exports;
+        // Um módulo roda uma vez só, mesmo que várias tarefas o importem ao mesmo tempo
+        synchronized (modules) {
+            exports = modules.get(module);
+            if (exports == null) {
+                if (!Module.await(List.of(module), diagnostics)) {
+                    throw new RuntimeError(stmt.path, "Could not compile module '" + stmt.path.lexeme + "'.");
+                }
+                // Registrado antes de executar: um import circular vê o que já foi definido e não entra em laço
+                exports = new Environment();
+                Natives.define(exports);
+                modules.put(module, exports);
+                resolve(module.unit.locals);
+                executeBlock(module.unit.statements, exports, exports);
+            }
+        }
+
+        // Traz as definições do módulo para os globais de quem importou
+        for (Map.Entry<Symbol, Object> entry : exports.values().entrySet()) {
+            if (Natives.nameOf(entry.getValue()) == null) globals.define(entry.getKey(), entry.getValue());
+        }
         return null;
     }
 
@@ -210,7 +304,7 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     @Override
     public Void visitPrintStmt(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        out.println(stringify(value));
         return null;
     }
 
@@ -227,7 +321,7 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
         if (stmt.initializer != null) {
             value = evaluate(stmt.initializer);
         }
-        environment.define(stmt.name.lexeme, value);
+        environment.define(stmt.name, value);
         return null;
     }
 
@@ -235,6 +329,7 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     public Void visitWhileStmt(Stmt.While stmt) {
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            tick(stmt.line);
         }
         return null;
     }
@@ -255,38 +350,43 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     public Object evaluateBinary(BinaryOp expr) {
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
+        return binary(expr.operator, expr.line, left, right);
+    }
 
-        switch (expr.operator.type) {
+    Object binary(TokenType operator, int line, Object left, Object right) {
+        switch (operator) {
             case BANG_EQUAL: return !isEqual(left, right);
             case EQUAL_EQUAL: return isEqual(left, right);
             case GREATER:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left > (double)right;
             case GREATER_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left >= (double)right;
             case LESS:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left < (double)right;
             case LESS_EQUAL:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left <= (double)right;
             case MINUS:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left - (double)right;
             case PLUS:
                 if (left instanceof Double && right instanceof Double) {
                     return (double)left + (double)right;
                 }
                 if (left instanceof String && right instanceof String) {
-                    return (String)left + (String)right;
+                    String result = (String)left + (String)right;
+                    allocate(AllocationBudget.string(result), line);
+                    return result;
                 }
-                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+                throw new RuntimeError(Token.at(operator, line), "Operands must be two numbers or two strings.");
             case SLASH:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left / (double)right;
             case STAR:
-                checkNumberOperands(expr.operator, left, right);
+                checkNumberOperands(operator, line, left, right);
                 return (double)left * (double)right;
             default: break;
         }
@@ -295,6 +395,8 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
 
     @Override
     public Object evaluateCall(CallExpr expr) {
+        if (expr.callee instanceof SuperCall) return callSuper((SuperCall)expr.callee, expr);
+
         Object callee = evaluate(expr.callee);
         List<Object> arguments = new ArrayList<>();
         for (Expr argument : expr.arguments) {
@@ -302,24 +404,55 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
         }
 
         if (!(callee instanceof LoxCallable)) {
-            throw new RuntimeError(expr.paren, "Can only call functions and classes.");
+            throw new RuntimeError(expr.paren(), "Can only call functions and classes.");
         }
 
         LoxCallable function = (LoxCallable)callee;
         if (arguments.size() != function.ParamNumbs()) {
-            throw new RuntimeError(expr.paren, "Expected " + function.ParamNumbs() + " arguments but got " + arguments.size() + ".");
+            throw new RuntimeError(expr.paren(), "Expected " + function.ParamNumbs() + " arguments but got " + arguments.size() + ".");
+        }
+
+        try {
+            return function.call(this, arguments);
+        } catch (RuntimeError error) {
+            throw atCallSite(error, expr.line);
         }
+    }
 
-        return function.call(this, arguments);
+    // Nativas lançam erros sem token; a linha passa a ser a da chamada
+    static RuntimeError atCallSite(RuntimeError error, int line) {
+        if (error.token != null) return error;
+        return new RuntimeError(Token.at(TokenType.RIGHT_PAREN, line), error.getMessage());
+    }
+
+    // super.metodo(...) vai direto ao método com o receptor atual, sem bind
+    private Object callSuper(SuperCall site, CallExpr expr) {
+        Environment thisScope = superScope(site);
+        LoxInstance object = (LoxInstance)thisScope.getAt(0, Symbol.THIS);
+        LoxFunc method = superMethod(site, thisScope.enclosing);
+
+        List<Object> arguments = new ArrayList<>();
+        for (Expr argument : expr.arguments) {
+            arguments.add(evaluate(argument));
+        }
+
+        if (arguments.size() != method.ParamNumbs()) {
+            throw new RuntimeError(expr.paren(), "Expected " + method.ParamNumbs() + " arguments but got " + arguments.size() + ".");
+        }
+
+        return method.callBound(this, object, arguments);
     }
 
     @Override
     public Object evaluateGet(GetProp expr) {
         Object object = evaluate(expr.object);
         if (object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.property);
+            Object value = ((LoxInstance) object).get(expr.name, expr.line);
+            // Método ligado: escopo com 'this' e uma closure nova
+            if (value instanceof LoxFunc) allocate(AllocationBudget.FRAME + AllocationBudget.CLOSURE, expr.line);
+            return value;
         }
-        throw new RuntimeError(expr.property, "Only instances have properties.");
+        throw new RuntimeError(expr.property(), "Only instances have properties.");
     }
 
     @Override
@@ -335,7 +468,7 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     @Override
     public Object evaluateLogical(LogicalOp expr) {
         Object left = evaluate(expr.left);
-        if (expr.operator.type == TokenType.OR) {
+        if (expr.operator == TokenType.OR) {
             if (isTruthy(left)) return left;
         } else {
             if (!isTruthy(left)) return left;
@@ -346,10 +479,14 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
     @Override
     public Object evaluateUnary(UnaryOp expr) {
         Object right = evaluate(expr.right);
-        switch (expr.operator.type) {
+        return unary(expr.operator, expr.line, right);
+    }
+
+    Object unary(TokenType operator, int line, Object right) {
+        switch (operator) {
             case BANG: return !isTruthy(right);
             case MINUS:
-                checkNumberOperand(expr.operator, right);
+                checkNumberOperand(operator, line, right);
                 return -(double)right;
             default:
                 // Unreachable
@@ -369,36 +506,61 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
 
     @Override
     public Object evaluateSuper(SuperCall expr) {
-        int distance = locals.get(expr);
-        LoxClasses superclass = (LoxClasses)environment.getAt(distance, "super");
-        LoxInstance object = (LoxInstance)environment.getAt(distance - 1, "this");
-        LoxFunc method = superclass.findMethod(expr.method.lexeme);
+        Environment thisScope = superScope(expr);
+        LoxInstance object = (LoxInstance)thisScope.getAt(0, Symbol.THIS);
+        return superMethod(expr, thisScope.enclosing).bind(object);
+    }
+
+    // O escopo do 'this' fica logo abaixo do escopo do 'super', então uma só caminhada basta
+    private Environment superScope(SuperCall expr) {
+        return environment.ancestor(superSite(expr).depth - 1);
+    }
+
+    // Cada sítio super.metodo sempre aponta para o mesmo método enquanto o escopo do 'super' for o mesmo
+    private LoxFunc superMethod(SuperCall expr, Environment scope) {
+        SuperSite site = superSite(expr);
+        if (site.scope == scope) return site.method;
+
+        LoxClasses superclass = (LoxClasses)scope.getAt(0, Symbol.SUPER);
+        LoxFunc method = superclass.findMethod(expr.method.symbol);
         if (method == null) {
             throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'.");
         }
-        return method.bind(object);
+        site.scope = scope;
+        site.method = method;
+        return method;
+    }
+
+    private SuperSite superSite(SuperCall expr) {
+        if (superSites == null) superSites = new IdentityHashMap<>();
+        SuperSite site = superSites.get(expr);
+        if (site == null) {
+            site = new SuperSite(locals.get(expr));
+            superSites.put(expr, site);
+        }
+        return site;
     }
 
     private Object lookUpVariable(Token name, Expr expr) {
         Integer distance = locals.get(expr);
         if (distance != null) {
-            return environment.getAt(distance, name.lexeme);
+            return environment.getAt(distance, name.symbol);
         } else {
             return globals.get(name);
         }
     }
 
-    private void checkNumberOperand(Token operator, Object operand) {
+    private void checkNumberOperand(TokenType operator, int line, Object operand) {
         if (operand instanceof Double) return;
-        throw new RuntimeError(operator, "Operand must be a number.");
+        throw new RuntimeError(Token.at(operator, line), "Operand must be a number.");
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
+    private void checkNumberOperands(TokenType operator, int line, Object left, Object right) {
         if (left instanceof Double && right instanceof Double) return;
-        throw new RuntimeError(operator, "Operands must be numbers.");
+        throw new RuntimeError(Token.at(operator, line), "Operands must be numbers.");
     }
 
-    private boolean isTruthy(Object object) {
+    boolean isTruthy(Object object) {
         if (object == null) return false;
         if (object instanceof Boolean) return (boolean)object;
         return true;
@@ -410,7 +572,7 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
         return a.equals(b);
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) return "nil";
         if (object instanceof Double) {
             String text = object.toString();
@@ -426,6 +588,38 @@ public class LoxInterpreter implements Expr.ExpressionEvaluator<Object>, Stmt.Vi
         locals.put(expr, depth);
     }
 
+    // Corpo da função; se o parser o deixou para depois, é analisado e resolvido aqui na primeira chamada
+    List<Stmt> body(Stmt.Function function) {
+        List<Stmt> body = function.body();
+        if (body != null) return body;
+        return function.lazyBody.parse(function, locals, diagnostics);
+    }
+
+    // Importa a tabela de resolução de uma unidade compilada à parte
+    void resolve(Map<Expr, Integer> resolved) {
+        if (!sharedLocals) locals.putAll(resolved);
+    }
+
+    // Corpo de uma função chamada; o FlatInterpreter troca por sua própria execução
+    void executeFunction(Stmt.Function declaration, Environment environment, Environment moduleGlobals) {
+        executeBlock(body(declaration), environment, moduleGlobals);
+    }
+
+    // Como executeBlock, mas com os globais de outro módulo no lugar enquanto o bloco roda
+    void executeBlock(List<Stmt> statements, Environment environment, Environment moduleGlobals) {
+        if (moduleGlobals == globals) {
+            executeBlock(statements, environment);
+            return;
+        }
+        Environment previous = this.globals;
+        try {
+            this.globals = moduleGlobals;
+            executeBlock(statements, environment);
+        } finally {
+            this.globals = previous;
+        }
+    }
+
     void executeBlock(List<Stmt> statements, Environment environment) {
         Environment previous = this.environment;
         try {
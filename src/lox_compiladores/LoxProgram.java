@@ -0,0 +1,92 @@
+package lox_compiladores;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Script compilado uma vez para ser executado muitas vezes, inclusive ao mesmo tempo: AST resolvida,
+// tabela de resolução (com a dos módulos importados) e avisos. Nada aqui muda depois de compile,
+// então um programa pode ser compartilhado entre threads; o estado de cada execução fica no LoxContext.
+public final class LoxProgram {
+    private final List<Stmt> statements;
+    private final Map<Expr, Integer> locals;
+    // Módulos importados no nível mais externo, para saber se o programa ficou velho
+    private final List<Module> modules;
+    private final List<String> errors;
+    private final List<String> warnings;
+
+    private LoxProgram(List<Stmt> statements, Map<Expr, Integer> locals, List<Module> modules, Diagnostics diagnostics) {
+        this.statements = statements;
+        this.locals = locals;
+        this.modules = modules;
+        this.errors = List.copyOf(diagnostics.errors());
+        this.warnings = List.copyOf(diagnostics.warnings());
+    }
+
+    // Imports são relativos ao diretório atual
+    public static LoxProgram compile(String source) {
+        return compile(source, Paths.get(""));
+    }
+
+    public static LoxProgram compile(String source, Path directory) {
+        Diagnostics diagnostics = new Diagnostics();
+        TokenBuffer tokens = new Scanner(source, diagnostics).scan();
+        if (diagnostics.hadError()) return new LoxProgram(null, Map.of(), List.of(), diagnostics);
+
+        List<Stmt> parsed = new Parser(tokens, diagnostics).parse();
+        if (diagnostics.hadError()) return new LoxProgram(null, Map.of(), List.of(), diagnostics);
+
+        Map<Expr, Integer> locals = new HashMap<>();
+        new Resolver(locals, diagnostics).resolve(parsed);
+        if (diagnostics.hadError()) return new LoxProgram(null, Map.of(), List.of(), diagnostics);
+
+        List<Module> modules = Module.link(parsed, directory);
+        if (!Module.await(modules, diagnostics)) return new LoxProgram(null, Map.of(), modules, diagnostics);
+        Module.collectLocals(modules, locals);
+
+        return new LoxProgram(List.copyOf(parsed), Map.copyOf(locals), List.copyOf(modules), diagnostics);
+    }
+
+    public boolean compiled() {
+        return statements != null;
+    }
+
+    // Erros de compilação, no formato do jlox ("[line N] Error...")
+    public List<String> errors() {
+        return errors;
+    }
+
+    public List<String> warnings() {
+        return warnings;
+    }
+
+    // Contexto novo, com globais próprios, imprimindo em System.out e System.err
+    public LoxContext newContext() {
+        return newContext(System.out, System.err);
+    }
+
+    public LoxContext newContext(PrintStream out, PrintStream err) {
+        if (!compiled()) throw new IllegalStateException("Program did not compile.");
+        return new LoxContext(this, out, err);
+    }
+
+    // Algum módulo importado (direta ou indiretamente) mudou no disco desde a compilação
+    boolean modulesChanged() {
+        return Module.changed(modules);
+    }
+
+    List<Stmt> statements() {
+        return statements;
+    }
+
+    Map<Expr, Integer> locals() {
+        return locals;
+    }
+
+    List<Module> modules() {
+        return modules;
+    }
+}
@@ -0,0 +1,81 @@
+package lox_compiladores;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tarefa criada por spawn: roda uma função Lox sem argumentos numa virtual thread, com um
+// interpretador próprio (fork) que enxerga os mesmos globais. join espera e devolve o resultado.
+final class LoxTask {
+    // Tarefas ainda rodando, para o processo não sair antes delas
+    private static final Set<LoxTask> running = ConcurrentHashMap.newKeySet();
+
+    private Thread thread;
+    // Diagnósticos do contexto que criou a tarefa (forks compartilham os do pai)
+    private Diagnostics owner;
+    // Escrito antes da thread terminar; Thread.join garante que quem espera o vê
+    private Object result;
+
+    private LoxTask() {}
+
+    static LoxTask start(LoxCallable function, LoxInterpreter interpreter) {
+        LoxTask task = new LoxTask();
+        task.owner = interpreter.diagnostics;
+        running.add(task);
+        task.thread = Thread.ofVirtual().name("lox-task").unstarted(() -> task.run(function, interpreter));
+        task.thread.start();
+        return task;
+    }
+
+    private void run(LoxCallable function, LoxInterpreter interpreter) {
+        interpreter.begin();
+        try {
+            result = function.call(interpreter, List.of());
+        } catch (RuntimeError error) {
+            // O erro é da tarefa: sai nos diagnósticos como no programa principal, e join devolve nil.
+            // Sem chamada por trás, o erro sem linha (combustível, nativas) fica com a da função
+            if (function instanceof LoxFunc) {
+                error = LoxInterpreter.atCallSite(error, ((LoxFunc) function).declaration().name.line);
+            }
+            interpreter.diagnostics.runtimeError(error);
+        } finally {
+            interpreter.finish();
+            running.remove(this);
+        }
+    }
+
+    Object join() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeError(null, "Interrupted while joining a task.");
+        }
+        return result;
+    }
+
+    // Espera as tarefas que o script não esperou com join
+    static void awaitAll() {
+        while (!running.isEmpty()) {
+            for (LoxTask task : running) task.join();
+        }
+    }
+
+    // Só as tarefas de um contexto: num processo com vários contextos, cada um espera as suas
+    static void awaitAll(Diagnostics owner) {
+        boolean waited = true;
+        while (waited) {
+            waited = false;
+            for (LoxTask task : running) {
+                if (task.owner != owner) continue;
+                task.join();
+                waited = true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
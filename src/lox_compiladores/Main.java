@@ -75,7 +75,7 @@ public class Main {
         }
         if (expr instanceof Expr.BinaryOp) {
             Expr.BinaryOp bin = (Expr.BinaryOp) expr;
-            return exprToString(bin.left) + " " + bin.operator.lexeme + " " + exprToString(bin.right);
+            return exprToString(bin.left) + " " + Token.spelling(bin.operator) + " " + exprToString(bin.right);
         }
         return expr.getClass().getSimpleName();
     }
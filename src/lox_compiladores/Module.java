@@ -0,0 +1,144 @@
+package lox_compiladores;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Arquivo importado com 'import "caminho";'. Cada caminho é compilado uma vez por processo (de novo só se
+// o arquivo mudar, o que importa no daemon), numa tarefa do ForkJoinPool; ao terminar, a tarefa dispara a compilação dos imports dele, então dependências
+// independentes compilam em paralelo seguindo o grafo. A execução (e os globais) fica por interpretador.
+final class Module {
+    private static final Map<Path, Module> loaded = new ConcurrentHashMap<>();
+
+    final Path path;
+    final CompilationUnit unit;
+    // Data de modificação lida antes de compilar; null se o arquivo não existia
+    private final FileTime modified;
+    private final ForkJoinTask<?> compilation;
+    // Escrito pela tarefa de compilação; lido só depois do join
+    private List<Module> imports = List.of();
+
+    private Module(Path path) {
+        this.path = path;
+        this.unit = new CompilationUnit(path.toString());
+        this.modified = modified(path);
+        this.compilation = ForkJoinPool.commonPool().submit(this::compile);
+    }
+
+    static Module load(Path path) {
+        return loaded.compute(path.toAbsolutePath().normalize(),
+                (key, module) -> module == null || module.stale() ? new Module(key) : module);
+    }
+
+    private boolean stale() {
+        FileTime current = modified(path);
+        return current == null ? modified != null : !current.equals(modified);
+    }
+
+    private static FileTime modified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Algum arquivo do grafo mudou desde que foi compilado
+    static boolean changed(List<Module> roots) {
+        Set<Module> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Module> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            Module module = pending.pop();
+            if (!visited.add(module)) continue;
+            if (module.stale()) return true;
+            module.compilation.join();
+            pending.addAll(module.imports);
+        }
+        return false;
+    }
+
+    private void compile() {
+        unit.compile();
+        if (unit.compiled()) imports = link(unit.statements, path.getParent());
+    }
+
+    // Liga os imports do nível mais externo aos módulos (caminhos relativos a 'directory')
+    // e já dispara a compilação deles, sem esperar
+    static List<Module> link(List<Stmt> statements, Path directory) {
+        List<Module> modules = new ArrayList<>();
+        for (Stmt statement : statements) {
+            if (!(statement instanceof Stmt.Import)) continue;
+            Stmt.Import stmt = (Stmt.Import) statement;
+            if (stmt.module == null) stmt.module = load(directory.resolve((String) stmt.path.literal));
+            modules.add(stmt.module);
+        }
+        return modules;
+    }
+
+    // Liga e espera todo o grafo; false se algum módulo não compilou
+    static boolean link(List<Stmt> statements, Path directory, Diagnostics diagnostics) {
+        return await(link(statements, directory), diagnostics);
+    }
+
+    // Espera a compilação dos módulos e de tudo que eles importam. Erros e avisos de cada
+    // módulo vão para 'diagnostics' prefixados pelo caminho, uma vez só por destino: o import
+    // executado depois de ligado não repete o que a ligação já mostrou, mas cada programa que usa
+    // o módulo em cache recebe as mensagens dele.
+    static boolean await(List<Module> roots, Diagnostics diagnostics) {
+        boolean compiled = true;
+        Set<Module> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Module> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            Module module = pending.pop();
+            if (!visited.add(module)) continue;
+            module.compilation.join();
+            // Depois do join a unidade não muda mais, então várias threads podem ler as mensagens juntas
+            if (diagnostics.firstReport(module)) module.unit.diagnostics.forward(diagnostics, module.path + ": ");
+            if (!module.unit.compiled()) compiled = false;
+            pending.addAll(module.imports);
+        }
+        return compiled;
+    }
+
+    // Dá o grafo como já reportado em 'diagnostics' (um contexto de um programa cujas mensagens de
+    // compilação já saíram pelo LoxProgram)
+    static void reported(List<Module> roots, Diagnostics diagnostics) {
+        Set<Module> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Module> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            Module module = pending.pop();
+            if (!visited.add(module)) continue;
+            diagnostics.firstReport(module);
+            pending.addAll(module.imports);
+        }
+    }
+
+    // Junta as tabelas de resolução de todo o grafo já compilado (o LoxProgram roda os módulos
+    // com uma tabela só, que não recebe escritas durante a execução)
+    static void collectLocals(List<Module> roots, Map<Expr, Integer> into) {
+        Set<Module> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Module> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            Module module = pending.pop();
+            if (!visited.add(module)) continue;
+            into.putAll(module.unit.locals);
+            pending.addAll(module.imports);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
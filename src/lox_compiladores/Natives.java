@@ -0,0 +1,310 @@
+package lox_compiladores;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Funções nativas compartilhadas: uma instância por processo, registrada por nome
+// para que snapshots possam referenciá-las sem serializar código.
+final class Natives {
+
+    private static final Map<String, LoxCallable> byName = new LinkedHashMap<>();
+    private static final Map<LoxCallable, String> names = new LinkedHashMap<>();
+
+    static {
+        // Função nativa clock
+        register("clock", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 0; }
+            
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                return (double)System.currentTimeMillis() / 1000.0;
+            }
+            
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+        
+        // Função nativa print (alternativa)
+        register("println", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+            
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                interpreter.out.println(LoxInterpreter.stringify(arguments.get(0)));
+                return null;
+            }
+            
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+        
+        // Função nativa para converter para string
+        register("str", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+            
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                return LoxInterpreter.stringify(arguments.get(0));
+            }
+            
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+        
+        // Função nativa para converter para número
+        register("num", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+            
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Object arg = arguments.get(0);
+                if (arg instanceof Double) return arg;
+                if (arg instanceof String) {
+                    try {
+                        return Double.parseDouble((String) arg);
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeError(null, "Cannot convert '" + arg + "' to number.");
+                    }
+                }
+                throw new RuntimeError(null, "Cannot convert to number.");
+            }
+            
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+        
+        // Função nativa para verificar tipo
+        register("type", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+            
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Object arg = arguments.get(0);
+                if (arg == null) return "nil";
+                if (arg instanceof Boolean) return "boolean";
+                if (arg instanceof Double) return "number";
+                if (arg instanceof String) return "string";
+                if (arg instanceof LoxCallable) return "function";
+                if (arg instanceof LoxInstance) return "instance";
+                if (arg instanceof LoxTask) return "task";
+                if (arg instanceof LoxChannel) return "channel";
+                return "unknown";
+            }
+            
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Roda a função numa virtual thread e devolve a tarefa, para join
+        register("spawn", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Object arg = arguments.get(0);
+                if (!(arg instanceof LoxCallable) || ((LoxCallable) arg).ParamNumbs() != 0) {
+                    throw new RuntimeError(null, "Can only spawn functions that take no arguments.");
+                }
+                return LoxTask.start((LoxCallable) arg, interpreter.fork());
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Espera a tarefa terminar e devolve o que a função retornou
+        register("join", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Object arg = arguments.get(0);
+                if (!(arg instanceof LoxTask)) throw new RuntimeError(null, "Can only join tasks.");
+                return interpreter.blocking(((LoxTask) arg)::join);
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // channel(n): canal com no máximo n valores esperando; channel(nil): sem limite
+        register("channel", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Object arg = arguments.get(0);
+                if (arg == null) return new LoxChannel(0);
+                if (arg instanceof Double) {
+                    double capacity = (Double) arg;
+                    if (capacity >= 1 && capacity == Math.floor(capacity) && capacity <= Integer.MAX_VALUE) {
+                        return new LoxChannel((int) capacity);
+                    }
+                }
+                throw new RuntimeError(null, "Channel capacity must be a positive integer or nil.");
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Põe o valor no canal, esperando se ele estiver cheio
+        register("send", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 2; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                LoxChannel channel = channel(arguments.get(0));
+                return interpreter.blocking(() -> {
+                    channel.send(arguments.get(1));
+                    return null;
+                });
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Tira um valor do canal, esperando se ele estiver vazio
+        register("receive", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                return interpreter.blocking(channel(arguments.get(0))::receive);
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Recebe do primeiro dos dois canais que tiver valor
+        register("select", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 2; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                LoxChannel first = channel(arguments.get(0)), second = channel(arguments.get(1));
+                return interpreter.blocking(() -> LoxChannel.select(first, second));
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // Fecha o canal: receive esvazia o que sobrou e depois devolve nil
+        register("close", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 1; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                channel(arguments.get(0)).close();
+                return null;
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // parallelFor(n, fn): fn(i) para cada i de 0 a n-1, em paralelo
+        register("parallelFor", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 2; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                Parallel.forEach(interpreter, count(arguments.get(0)), function(arguments.get(1), 1));
+                return null;
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // parallelMap(n, fn): calcula fn(i) para cada i e devolve results, com results(i) == fn(i)
+        register("parallelMap", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 2; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                return new Parallel.Results(
+                        Parallel.map(interpreter, count(arguments.get(0)), function(arguments.get(1), 1)));
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+
+        // parallelReduce(n, fn, combine): combine(...combine(fn(0), fn(1))..., fn(n-1)), em qualquer agrupamento
+        register("parallelReduce", new LoxCallable() {
+            @Override
+            public int ParamNumbs() { return 3; }
+
+            @Override
+            public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+                return Parallel.reduce(interpreter, count(arguments.get(0)), function(arguments.get(1), 1),
+                        function(arguments.get(2), 2));
+            }
+
+            @Override
+            public String toString() { return "<native fn>"; }
+        });
+    }
+
+    private Natives() {}
+
+    private static int count(Object value) {
+        if (value instanceof Double) {
+            double count = (Double) value;
+            if (count >= 0 && count == Math.floor(count) && count <= Integer.MAX_VALUE) return (int) count;
+        }
+        throw new RuntimeError(null, "Count must be a non-negative integer.");
+    }
+
+    private static LoxCallable function(Object value, int arity) {
+        if (!(value instanceof LoxCallable) || ((LoxCallable) value).ParamNumbs() != arity) {
+            throw new RuntimeError(null, "Expected a function that takes " + arity
+                    + (arity == 1 ? " argument." : " arguments."));
+        }
+        return (LoxCallable) value;
+    }
+
+    private static LoxChannel channel(Object value) {
+        if (!(value instanceof LoxChannel)) throw new RuntimeError(null, "Expected a channel.");
+        return (LoxChannel) value;
+    }
+
+    private static void register(String name, LoxCallable function) {
+        byName.put(name, function);
+        names.put(function, name);
+    }
+
+    static void define(Environment globals) {
+        for (Map.Entry<String, LoxCallable> entry : byName.entrySet()) {
+            globals.define(entry.getKey(), entry.getValue());
+        }
+    }
+
+    static LoxCallable named(String name) {
+        return byName.get(name);
+    }
+
+    // Nome da nativa, ou null se o objeto não é uma função nativa.
+    static String nameOf(Object value) {
+        return names.get(value);
+    }
+}
@@ -0,0 +1,169 @@
+package lox_compiladores;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+// parallelFor, parallelMap e parallelReduce: o intervalo 0..n-1 é dividido ao meio até pedaços de
+// 'grain' índices, que rodam no ForkJoinPool comum, cada um com um interpretador próprio (fork).
+// Todos os pedaços chamam a mesma função, como as tarefas de spawn: variáveis capturadas, globais e
+// campos de instâncias são os mesmos para todos, e sem sincronização. 'total = total + 1' em
+// parallelFor perde somas, seja 'total' global ou local de uma função de fora; para juntar
+// resultados use parallelReduce, ou mande os valores por um canal.
+final class Parallel {
+    private final LoxInterpreter interpreter;
+    private final LoxCallable function;
+    private final int grain;
+
+    private Parallel(LoxInterpreter interpreter, LoxCallable function, int count) {
+        this.interpreter = interpreter;
+        this.function = function;
+        // Uns quatro pedaços por núcleo equilibram a carga sem dividir demais
+        this.grain = Math.max(1, count / (ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    static void forEach(LoxInterpreter interpreter, int count, LoxCallable function) {
+        Parallel parallel = new Parallel(interpreter, function, count);
+        // Quem chamou espera sem vaga; os pedaços disputam as vagas como tarefas
+        interpreter.blocking(() -> ForkJoinPool.commonPool().invoke(parallel.new Each(0, count)));
+    }
+
+    static Object[] map(LoxInterpreter interpreter, int count, LoxCallable function) {
+        Parallel parallel = new Parallel(interpreter, function, count);
+        Object[] results = new Object[count];
+        interpreter.blocking(() -> ForkJoinPool.commonPool().invoke(parallel.new Map(0, count, results)));
+        return results;
+    }
+
+    // Aplica 'function' a cada índice e junta os resultados com 'combine', que deve ser associativa
+    static Object reduce(LoxInterpreter interpreter, int count, LoxCallable function, LoxCallable combine) {
+        if (count == 0) return null;
+        Parallel parallel = new Parallel(interpreter, function, count);
+        return interpreter.blocking(() -> ForkJoinPool.commonPool().invoke(parallel.new Reduce(0, count, combine)));
+    }
+
+    // O que parallelMap devolve: results(i) é o valor calculado para o índice i
+    static final class Results implements LoxCallable {
+        private final Object[] values;
+
+        Results(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int ParamNumbs() { return 1; }
+
+        @Override
+        public Object call(LoxInterpreter interpreter, List<Object> arguments) {
+            Object index = arguments.get(0);
+            if (index instanceof Double) {
+                double i = (Double) index;
+                if (i >= 0 && i < values.length && i == Math.floor(i)) return values[(int) i];
+            }
+            throw new RuntimeError(null, "Index out of range.");
+        }
+
+        @Override
+        public String toString() { return "<results>"; }
+    }
+
+    private static Object call(LoxCallable function, LoxInterpreter interpreter, Object... arguments) {
+        return function.call(interpreter, List.of(arguments));
+    }
+
+    private final class Each extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Each(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Each(from, middle), new Each(middle, to));
+                return;
+            }
+            LoxInterpreter worker = interpreter.fork();
+            worker.begin();
+            try {
+                for (int i = from; i < to; i++) call(function, worker, (double) i);
+            } finally {
+                worker.finish();
+            }
+        }
+    }
+
+    private final class Map extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final Object[] results;
+
+        Map(int from, int to, Object[] results) {
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Map(from, middle, results), new Map(middle, to, results));
+                return;
+            }
+            LoxInterpreter worker = interpreter.fork();
+            worker.begin();
+            try {
+                for (int i = from; i < to; i++) results[i] = call(function, worker, (double) i);
+            } finally {
+                worker.finish();
+            }
+        }
+    }
+
+    private final class Reduce extends RecursiveTask<Object> {
+        private final int from;
+        private final int to;
+        private final LoxCallable combine;
+
+        Reduce(int from, int to, LoxCallable combine) {
+            this.from = from;
+            this.to = to;
+            this.combine = combine;
+        }
+
+        @Override
+        protected Object compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                Reduce right = new Reduce(middle, to, combine);
+                right.fork();
+                Object left = new Reduce(from, middle, combine).compute();
+                Object joined = right.join();
+                LoxInterpreter worker = interpreter.fork();
+                worker.begin();
+                try {
+                    return call(combine, worker, left, joined);
+                } finally {
+                    worker.finish();
+                }
+            }
+            LoxInterpreter worker = interpreter.fork();
+            worker.begin();
+            try {
+                Object accumulated = call(function, worker, (double) from);
+                for (int i = from + 1; i < to; i++) {
+                    accumulated = call(combine, worker, accumulated, call(function, worker, (double) i));
+                }
+                return accumulated;
+            } finally {
+                worker.finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package lox_compiladores;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Compila vários arquivos em paralelo num ForkJoinPool e depois executa cada um, em ordem,
+// num interpretador próprio. Os erros de cada arquivo saem juntos, prefixados pelo caminho.
+class ParallelCompiler {
+    private final ForkJoinPool pool;
+
+    ParallelCompiler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    ParallelCompiler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    List<CompilationUnit> compile(List<String> paths) {
+        List<CompilationUnit> units = new ArrayList<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (String path : paths) {
+            CompilationUnit unit = new CompilationUnit(path);
+            units.add(unit);
+            tasks.add(pool.submit((Runnable)unit::compile));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        // Os módulos importados compilam no pool comum, uma vez só para todos os arquivos
+        for (CompilationUnit unit : units) {
+            if (!unit.compiled()) continue;
+            Path directory = Paths.get(unit.path).toAbsolutePath().getParent();
+            if (!Module.link(unit.statements, directory, unit.diagnostics)) unit.statements = null;
+        }
+        return units;
+    }
+
+    // Devolve o código de saída: 65 se algum arquivo não compilou, 70 se algum falhou em execução
+    int run(List<String> paths) {
+        List<CompilationUnit> units = compile(paths);
+
+        boolean compileErrors = false;
+        for (CompilationUnit unit : units) {
+            unit.diagnostics.flush(System.err, System.out, unit.path + ": ");
+            if (!unit.compiled()) compileErrors = true;
+        }
+        if (compileErrors) return 65;
+
+        boolean runtimeErrors = false;
+        for (CompilationUnit unit : units) {
+            LoxInterpreter interpreter = new LoxInterpreter(unit.diagnostics);
+            interpreter.resolve(unit.locals);
+            interpreter.interpret(unit.statements);
+            // As tarefas que o arquivo criou terminam antes da saída dele sair
+            LoxTask.awaitAll(unit.diagnostics);
+            unit.diagnostics.flush(System.err, System.out, unit.path + ": ");
+            if (unit.diagnostics.hadRuntimeError()) runtimeErrors = true;
+        }
+        return runtimeErrors ? 70 : 0;
+    }
+}
@@ -7,18 +7,100 @@ import java.util.List;
 import static lox_compiladores.TokenType.*;
 
 public class Parser {
-    private final List<Token> tokens;
+    private final TokenStream tokens;
+    private final Diagnostics diagnostics;
+    // Modo preguiçoso: corpos de função são só validados; a árvore e a resolução ficam para a primeira chamada
+    private boolean lazyBodies = false;
+    // Analisando um corpo preguiçoso já validado: os corpos de dentro dele não precisam ser validados de novo
+    private boolean validatedBodies = false;
+    // Passada única: cada declaração de topo é resolvida logo que termina de ser analisada
+    private Resolver resolver = null;
+    private boolean hadError = false;
     private int current = 0;
 
+    // Precedência dos operadores infixos, indexada pelo ordinal do TokenType (0 = não é infixo)
+    private static final int ASSIGNMENT = 1, OR_LEVEL = 2, AND_LEVEL = 3, EQUALITY = 4,
+            COMPARISON = 5, TERM = 6, FACTOR = 7, UNARY = 8, CALL = 9;
+    private static final int[] precedences = new int[TokenType.values().length];
+
+    static {
+        precedences[EQUAL.ordinal()] = ASSIGNMENT;
+        precedences[OR.ordinal()] = OR_LEVEL;
+        precedences[AND.ordinal()] = AND_LEVEL;
+        precedences[BANG_EQUAL.ordinal()] = EQUALITY;
+        precedences[EQUAL_EQUAL.ordinal()] = EQUALITY;
+        precedences[GREATER.ordinal()] = COMPARISON;
+        precedences[GREATER_EQUAL.ordinal()] = COMPARISON;
+        precedences[LESS.ordinal()] = COMPARISON;
+        precedences[LESS_EQUAL.ordinal()] = COMPARISON;
+        precedences[MINUS.ordinal()] = TERM;
+        precedences[PLUS.ordinal()] = TERM;
+        precedences[SLASH.ordinal()] = FACTOR;
+        precedences[STAR.ordinal()] = FACTOR;
+        precedences[LEFT_PAREN.ordinal()] = CALL;
+        precedences[DOT.ordinal()] = CALL;
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this(tokens, Lox.diagnostics);
+    }
+
     public Parser(List<Token> tokens) {
+        this(TokenBuffer.of(tokens));
+    }
+
+    Parser(TokenStream tokens, Diagnostics diagnostics) {
         this.tokens = tokens;
+        this.diagnostics = diagnostics;
+    }
+
+    Parser lazyBodies() {
+        this.lazyBodies = true;
+        return this;
+    }
+
+    Parser validatedBodies() {
+        this.validatedBodies = true;
+        return this;
+    }
+
+    // Depois do primeiro erro de sintaxe nada mais é resolvido, como quando o resolver roda depois
+    Parser resolving(Resolver resolver) {
+        this.resolver = resolver;
+        return this;
+    }
+
+    // Analisa o bloco que começa logo depois de um '{' já consumido
+    List<Stmt> parseBody(int start) {
+        current = start;
+        return block();
+    }
+
+    // Uma declaração de topo por vez (null se houve erro nela), para quem consome em fluxo
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    Stmt next() {
+        return declaration();
+    }
+
+    // Índice do próximo token a ser consumido
+    int position() {
+        return current;
     }
 
     public List<Stmt> parse() {
+        // Na passada única o tempo do resolver entra aqui
+        LoxEvents.Compile event = LoxEvents.ENABLED ? new LoxEvents.Compile(LoxEvents.Compile.PARSER) : null;
+        if (event != null) event.begin();
         List<Stmt> statements = new ArrayList<>();
         while (!isAtEnd()) {
-            statements.add(declaration());
+            Stmt statement = declaration();
+            statements.add(statement);
+            if (resolver != null && !hadError) resolver.resolve(statement);
         }
+        if (event != null) event.commit();
         return statements;
     }
 
@@ -27,6 +109,7 @@ public class Parser {
             if (match(CLASS)) return classDeclaration();
             if (match(FUN)) return function("function");
             if (match(VAR)) return varDeclaration();
+            if (match(IMPORT)) return importDeclaration();
             return statement();
         } catch (ParseError error) {
             synchronize();
@@ -39,24 +122,24 @@ public class Parser {
         
         Expr.Variable superclass = null;
         if (match(LESS)) {
-            consume(IDENTIFIER, "Expect superclass name.");
+            expect(IDENTIFIER, "Expect superclass name.");
             superclass = new Expr.Variable(previous());
         }
 
-        consume(LEFT_BRACE, "Expect '{' before class body.");
+        expect(LEFT_BRACE, "Expect '{' before class body.");
 
         List<Stmt.Function> methods = new ArrayList<>();
         while (!check(RIGHT_BRACE) && !isAtEnd()) {
             methods.add(function("method"));
         }
 
-        consume(RIGHT_BRACE, "Expect '}' after class body.");
+        expect(RIGHT_BRACE, "Expect '}' after class body.");
         return new Stmt.Class(name, superclass, methods);
     }
 
     private Stmt.Function function(String kind) {
         Token name = consume(IDENTIFIER, "Expect " + kind + " name.");
-        consume(LEFT_PAREN, "Expect '(' after " + kind + " name.");
+        expect(LEFT_PAREN, "Expect '(' after " + kind + " name.");
         
         List<Token> parameters = new ArrayList<>();
         if (!check(RIGHT_PAREN)) {
@@ -67,13 +150,218 @@ public class Parser {
                 parameters.add(consume(IDENTIFIER, "Expect parameter name."));
             } while (match(COMMA));
         }
-        consume(RIGHT_PAREN, "Expect ')' after parameters.");
-        consume(LEFT_BRACE, "Expect '{' before " + kind + " body.");
-        
+        expect(RIGHT_PAREN, "Expect ')' after parameters.");
+        expect(LEFT_BRACE, "Expect '{' before " + kind + " body.");
+
+        if (lazyBodies) {
+            int start = current;
+            if (validatedBodies) {
+                skipBody();
+            } else {
+                recognizeBlock();
+            }
+            return new Stmt.Function(name, parameters, new LazyBody(tokens, start, current - 1));
+        }
+
         List<Stmt> body = block();
         return new Stmt.Function(name, parameters, body);
     }
 
+    // Corpo que já passou pelo reconhecedor: basta achar o '}' que fecha
+    private void skipBody() {
+        int depth = 1;
+        while (depth > 0 && !isAtEnd()) {
+            TokenType type = tokens.type(current++);
+            if (type == LEFT_BRACE) depth++;
+            else if (type == RIGHT_BRACE) depth--;
+        }
+    }
+
+    // Reconhecedor: a mesma gramática e as mesmas mensagens de erro que as regras acima, mas sem montar
+    // nós nem Tokens, para o modo preguiçoso conferir a sintaxe de um corpo sem construir a árvore dele.
+    // Só valida: a resolução e os avisos do corpo ficam para a primeira chamada (ver LazyBody)
+    private void recognizeDeclaration() {
+        try {
+            if (match(CLASS)) {
+                recognizeClass();
+            } else if (match(FUN)) {
+                recognizeFunction("function");
+            } else if (match(VAR)) {
+                recognizeVar();
+            } else if (match(IMPORT)) {
+                expect(STRING, "Expect module path after 'import'.");
+                expect(SEMICOLON, "Expect ';' after module path.");
+            } else {
+                recognizeStatement();
+            }
+        } catch (ParseError error) {
+            synchronize();
+        }
+    }
+
+    private void recognizeClass() {
+        expect(IDENTIFIER, "Expect class name.");
+        if (match(LESS)) expect(IDENTIFIER, "Expect superclass name.");
+        expect(LEFT_BRACE, "Expect '{' before class body.");
+        while (!check(RIGHT_BRACE) && !isAtEnd()) recognizeFunction("method");
+        expect(RIGHT_BRACE, "Expect '}' after class body.");
+    }
+
+    private void recognizeFunction(String kind) {
+        // As mensagens com 'kind' só são montadas se houver erro
+        if (!check(IDENTIFIER)) throw error(peek(), "Expect " + kind + " name.");
+        advance();
+        if (!check(LEFT_PAREN)) throw error(peek(), "Expect '(' after " + kind + " name.");
+        advance();
+        if (!check(RIGHT_PAREN)) {
+            int count = 0;
+            do {
+                if (count++ >= 255) error(peek(), "Can't have more than 255 parameters.");
+                expect(IDENTIFIER, "Expect parameter name.");
+            } while (match(COMMA));
+        }
+        expect(RIGHT_PAREN, "Expect ')' after parameters.");
+        if (!check(LEFT_BRACE)) throw error(peek(), "Expect '{' before " + kind + " body.");
+        advance();
+        recognizeBlock();
+    }
+
+    private void recognizeVar() {
+        expect(IDENTIFIER, "Expect variable name.");
+        if (match(EQUAL)) recognizeExpression(ASSIGNMENT);
+        expect(SEMICOLON, "Expect ';' after variable declaration.");
+    }
+
+    private void recognizeStatement() {
+        if (match(FOR)) {
+            expect(LEFT_PAREN, "Expect '(' after 'for'.");
+            if (match(VAR)) {
+                recognizeVar();
+            } else if (!match(SEMICOLON)) {
+                recognizeExpression(ASSIGNMENT);
+                expect(SEMICOLON, "Expect ';' after expression.");
+            }
+            if (!check(SEMICOLON)) recognizeExpression(ASSIGNMENT);
+            expect(SEMICOLON, "Expect ';' after loop condition.");
+            if (!check(RIGHT_PAREN)) recognizeExpression(ASSIGNMENT);
+            expect(RIGHT_PAREN, "Expect ')' after for clauses.");
+            recognizeStatement();
+        } else if (match(IF)) {
+            expect(LEFT_PAREN, "Expect '(' after 'if'.");
+            recognizeExpression(ASSIGNMENT);
+            expect(RIGHT_PAREN, "Expect ')' after if condition.");
+            recognizeStatement();
+            if (match(ELSE)) recognizeStatement();
+        } else if (match(PRINT)) {
+            recognizeExpression(ASSIGNMENT);
+            expect(SEMICOLON, "Expect ';' after value.");
+        } else if (match(RETURN)) {
+            if (!check(SEMICOLON)) recognizeExpression(ASSIGNMENT);
+            expect(SEMICOLON, "Expect ';' after return value.");
+        } else if (match(WHILE)) {
+            expect(LEFT_PAREN, "Expect '(' after 'while'.");
+            recognizeExpression(ASSIGNMENT);
+            expect(RIGHT_PAREN, "Expect ')' after condition.");
+            recognizeStatement();
+        } else if (match(LEFT_BRACE)) {
+            recognizeBlock();
+        } else {
+            recognizeExpression(ASSIGNMENT);
+            expect(SEMICOLON, "Expect ';' after expression.");
+        }
+    }
+
+    private void recognizeBlock() {
+        while (!check(RIGHT_BRACE) && !isAtEnd()) recognizeDeclaration();
+        expect(RIGHT_BRACE, "Expect '}' after block.");
+    }
+
+    // Devolve se a expressão pode ser alvo de atribuição (um nome ou um acesso a propriedade)
+    private boolean recognizeExpression(int precedence) {
+        boolean assignable = recognizePrefix();
+
+        while (true) {
+            TokenType type = tokens.type(current);
+            int infix = precedences[type.ordinal()];
+            if (infix < precedence) return assignable;
+            current++;
+
+            switch (type) {
+                case EQUAL: {
+                    int equals = current - 1;
+                    recognizeExpression(ASSIGNMENT);
+                    if (!assignable) error(tokens.token(equals), "Invalid assignment target.");
+                    assignable = false;
+                    break;
+                }
+                case LEFT_PAREN:
+                    recognizeCall();
+                    assignable = false;
+                    break;
+                case DOT:
+                    expect(IDENTIFIER, "Expect property name after '.'.");
+                    assignable = true;
+                    break;
+                default:
+                    recognizeExpression(infix + 1);
+                    assignable = false;
+                    break;
+            }
+        }
+    }
+
+    private boolean recognizePrefix() {
+        TokenType type = tokens.type(current);
+        switch (type) {
+            case FALSE:
+            case TRUE:
+            case NIL:
+            case NUMBER:
+            case STRING:
+            case THIS:
+                current++;
+                return false;
+            case IDENTIFIER:
+                current++;
+                return true;
+            case SUPER:
+                current++;
+                expect(DOT, "Expect '.' after 'super'.");
+                expect(IDENTIFIER, "Expect superclass method name.");
+                return false;
+            case BANG:
+            case MINUS:
+                current++;
+                recognizeExpression(UNARY);
+                return false;
+            case LEFT_PAREN:
+                current++;
+                recognizeExpression(ASSIGNMENT);
+                expect(RIGHT_PAREN, "Expect ')' after expression.");
+                return false;
+            default:
+                throw error(peek(), "Expect expression.");
+        }
+    }
+
+    private void recognizeCall() {
+        if (!check(RIGHT_PAREN)) {
+            int count = 0;
+            do {
+                if (count++ >= 255) error(peek(), "Can't have more than 255 arguments.");
+                recognizeExpression(ASSIGNMENT);
+            } while (match(COMMA));
+        }
+        expect(RIGHT_PAREN, "Expect ')' after arguments.");
+    }
+
+    private Stmt importDeclaration() {
+        Token keyword = previous();
+        Token path = consume(STRING, "Expect module path after 'import'.");
+        expect(SEMICOLON, "Expect ';' after module path.");
+        return new Stmt.Import(keyword, path);
+    }
+
     private Stmt varDeclaration() {
         Token name = consume(IDENTIFIER, "Expect variable name.");
 
@@ -82,7 +370,7 @@ public class Parser {
             initializer = expression();
         }
 
-        consume(SEMICOLON, "Expect ';' after variable declaration.");
+        expect(SEMICOLON, "Expect ';' after variable declaration.");
         return new Stmt.Var(name, initializer);
     }
 
@@ -92,12 +380,16 @@ public class Parser {
         if (match(PRINT)) return printStatement();
         if (match(RETURN)) return returnStatement();
         if (match(WHILE)) return whileStatement();
-        if (match(LEFT_BRACE)) return new Stmt.Block(block());
+        if (match(LEFT_BRACE)) {
+            int line = previous().line;
+            return new Stmt.Block(block(), line);
+        }
         return expressionStatement();
     }
 
     private Stmt forStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'for'.");
+        int line = previous().line;
+        expect(LEFT_PAREN, "Expect '(' after 'for'.");
 
         Stmt initializer;
         if (match(SEMICOLON)) {
@@ -112,13 +404,13 @@ public class Parser {
         if (!check(SEMICOLON)) {
             condition = expression();
         }
-        consume(SEMICOLON, "Expect ';' after loop condition.");
+        expect(SEMICOLON, "Expect ';' after loop condition.");
 
         Expr increment = null;
         if (!check(RIGHT_PAREN)) {
             increment = expression();
         }
-        consume(RIGHT_PAREN, "Expect ')' after for clauses.");
+        expect(RIGHT_PAREN, "Expect ')' after for clauses.");
 
         Stmt body = statement();
 
@@ -126,23 +418,23 @@ public class Parser {
             body = new Stmt.Block(Arrays.asList(
                 body,
                 new Stmt.Expression(increment)
-            ));
+            ), line);
         }
 
         if (condition == null) condition = new Expr.Value(true);
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(condition, body, line);
 
         if (initializer != null) {
-            body = new Stmt.Block(Arrays.asList(initializer, body));
+            body = new Stmt.Block(Arrays.asList(initializer, body), line);
         }
 
         return body;
     }
 
     private Stmt ifStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'if'.");
+        expect(LEFT_PAREN, "Expect '(' after 'if'.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "Expect ')' after if condition."); 
+        expect(RIGHT_PAREN, "Expect ')' after if condition.");
 
         Stmt thenBranch = statement();
         Stmt elseBranch = null;
@@ -155,7 +447,7 @@ public class Parser {
 
     private Stmt printStatement() {
         Expr value = expression();
-        consume(SEMICOLON, "Expect ';' after value.");
+        expect(SEMICOLON, "Expect ';' after value.");
         return new Stmt.Print(value);
     }
 
@@ -166,22 +458,23 @@ public class Parser {
             value = expression();
         }
 
-        consume(SEMICOLON, "Expect ';' after return value.");
+        expect(SEMICOLON, "Expect ';' after return value.");
         return new Stmt.Return(keyword, value);
     }
 
     private Stmt whileStatement() {
-        consume(LEFT_PAREN, "Expect '(' after 'while'.");
+        int line = previous().line;
+        expect(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
-        consume(RIGHT_PAREN, "Expect ')' after condition.");
+        expect(RIGHT_PAREN, "Expect ')' after condition.");
         Stmt body = statement();
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(condition, body, line);
     }
 
     private Stmt expressionStatement() {
         Expr expr = expression();
-        consume(SEMICOLON, "Expect ';' after expression.");
+        expect(SEMICOLON, "Expect ';' after expression.");
         return new Stmt.Expression(expr);
     }
 
@@ -192,132 +485,107 @@ public class Parser {
             statements.add(declaration());
         }
 
-        consume(RIGHT_BRACE, "Expect '}' after block.");
+        expect(RIGHT_BRACE, "Expect '}' after block.");
         return statements;
     }
 
     private Expr expression() {
-        return assignment();
+        return expression(ASSIGNMENT);
     }
 
-    private Expr assignment() {
-        Expr expr = or();
+    // Pratt: um prefixo (literal, nome, unário, grupo...) e depois os operadores infixos
+    // enquanto a precedência deles for pelo menos 'precedence'
+    private Expr expression(int precedence) {
+        Expr expr = prefix();
 
-        if (match(EQUAL)) {
-            Token equals = previous();
-            Expr value = assignment();
-
-            if (expr instanceof Expr.VarRef) {
-                Token name = ((Expr.VarRef)expr).name;
-                return new Expr.Assign(name, value);
-            } else if (expr instanceof Expr.GetProp) {
-                Expr.GetProp get = (Expr.GetProp)expr;
-                return new Expr.SetProp(get.object, get.property, value);
+        while (true) {
+            TokenType type = tokens.type(current);
+            int infix = precedences[type.ordinal()];
+            if (infix < precedence) return expr;
+            current++;
+
+            switch (type) {
+                case EQUAL:
+                    expr = assignment(expr);
+                    break;
+                case OR:
+                case AND:
+                    expr = new Expr.LogicalOp(expr, previous(), expression(infix + 1));
+                    break;
+                case LEFT_PAREN:
+                    expr = finishCall(expr);
+                    break;
+                case DOT:
+                    expr = new Expr.GetProp(expr, consume(IDENTIFIER, "Expect property name after '.'."));
+                    break;
+                default:
+                    expr = new Expr.BinaryOp(expr, previous(), expression(infix + 1));
+                    break;
             }
-
-            error(equals, "Invalid assignment target.");
         }
-
-        return expr;
     }
 
-    private Expr or() {
-        Expr expr = and();
-
-        while (match(OR)) {
-            Token operator = previous();
-            Expr right = and();
-            expr = new Expr.LogicalOp(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr and() {
-        Expr expr = equality();
-
-        while (match(AND)) {
-            Token operator = previous();
-            Expr right = equality();
-            expr = new Expr.LogicalOp(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr equality() {
-        Expr expr = comparison();
-
-        while (match(BANG_EQUAL, EQUAL_EQUAL)) {
-            Token operator = previous();
-            Expr right = comparison();
-            expr = new Expr.BinaryOp(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr comparison() {
-        Expr expr = term();
-
-        while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.BinaryOp(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr term() {
-        Expr expr = factor();
-
-        while (match(MINUS, PLUS)) {
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.BinaryOp(expr, operator, right);
-        }
-
-        return expr;
-    }
-
-    private Expr factor() {
-        Expr expr = unary();
-
-        while (match(SLASH, STAR)) {
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.BinaryOp(expr, operator, right);
+    private Expr prefix() {
+        TokenType type = tokens.type(current);
+        switch (type) {
+            case FALSE:
+                current++;
+                return new Expr.Value(false);
+            case TRUE:
+                current++;
+                return new Expr.Value(true);
+            case NIL:
+                current++;
+                return new Expr.Value(null);
+            case NUMBER:
+            case STRING:
+                current++;
+                return new Expr.Value(tokens.literal(current - 1));
+            case IDENTIFIER:
+                current++;
+                return new Expr.VarRef(previous());
+            case THIS:
+                current++;
+                return new Expr.ThisRef(previous());
+            case SUPER: {
+                current++;
+                Token keyword = previous();
+                expect(DOT, "Expect '.' after 'super'.");
+                Token method = consume(IDENTIFIER, "Expect superclass method name.");
+                return new Expr.SuperCall(keyword, method);
+            }
+            case BANG:
+            case MINUS: {
+                current++;
+                Token operator = previous();
+                return new Expr.UnaryOp(operator, expression(UNARY));
+            }
+            case LEFT_PAREN: {
+                current++;
+                Expr expr = expression();
+                expect(RIGHT_PAREN, "Expect ')' after expression.");
+                return new Expr.Group(expr);
+            }
+            default:
+                throw error(peek(), "Expect expression.");
         }
-
-        return expr;
     }
 
-    private Expr unary() {
-        if (match(BANG, MINUS)) {
-            Token operator = previous();
-            Expr right = unary();
-            return new Expr.UnaryOp(operator, right);
-        }
-
-        return call();
-    }
+    // O '=' já foi consumido; à direita vem outra atribuição (associa à direita)
+    private Expr assignment(Expr target) {
+        Token equals = previous();
+        Expr value = expression(ASSIGNMENT);
 
-    private Expr call() {
-        Expr expr = primary();
-
-        while (true) {
-            if (match(LEFT_PAREN)) {
-                expr = finishCall(expr);
-            } else if (match(DOT)) {
-                Token name = consume(IDENTIFIER, "Expect property name after '.'.");
-                expr = new Expr.GetProp(expr, name);
-            } else {
-                break;
-            }
+        if (target instanceof Expr.VarRef) {
+            Token name = ((Expr.VarRef)target).name;
+            return new Expr.Assign(name, value);
+        } else if (target instanceof Expr.GetProp) {
+            Expr.GetProp get = (Expr.GetProp)target;
+            return new Expr.SetProp(get.object, get.name, get.line, value);
         }
 
-        return expr;
+        error(equals, "Invalid assignment target.");
+        return target;
     }
 
     private Expr finishCall(Expr callee) {
@@ -335,77 +603,52 @@ public class Parser {
         return new Expr.CallExpr(callee, paren, arguments);
     }
 
-    private Expr primary() {
-        if (match(FALSE)) return new Expr.Value(false);
-        if (match(TRUE)) return new Expr.Value(true);
-        if (match(NIL)) return new Expr.Value(null);
-        
-        if (match(NUMBER, STRING)) {
-            return new Expr.Value(previous().literal);
-        }
-        
-        if (match(SUPER)) {
-            Token keyword = previous();
-            consume(DOT, "Expect '.' after 'super'.");
-            Token method = consume(IDENTIFIER, "Expect superclass method name.");
-            return new Expr.SuperCall(keyword, method);
-        }
-        
-        if (match(THIS)) return new Expr.ThisRef(previous());
-        
-        if (match(IDENTIFIER)) {
-            return new Expr.VarRef(previous());
-        }
-        
-        if (match(LEFT_PAREN)) {
-            Expr expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression.");
-            return new Expr.Group(expr);
-        }
-
-        throw error(peek(), "Expect expression.");
-    }
-
-    // Métodos utilitários
-    private boolean match(TokenType... types) {
-        for (TokenType type : types) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
+    // Métodos utilitários: o cursor olha só os arrays do TokenBuffer; Token é montado sob demanda
+    private boolean match(TokenType type) {
+        if (check(type)) {
+            advance();
+            return true;
         }
         return false;
     }
 
     private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
+        expect(type, message);
+        return previous();
+    }
+
+    private void expect(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
         throw error(peek(), message);
     }
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().type == type;
+        return tokens.type(current) == type;
     }
 
-    private Token advance() {
+    private void advance() {
         if (!isAtEnd()) current++;
-        return previous();
     }
 
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return tokens.type(current) == EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.token(current);
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
     private ParseError error(Token token, String message) {
-        Lox.error(token, message);
+        hadError = true;
+        diagnostics.error(token, message);
         return new ParseError();
     }
 
@@ -413,12 +656,13 @@ public class Parser {
         advance();
 
         while (!isAtEnd()) {
-            if (previous().type == SEMICOLON) return;
+            if (tokens.type(current - 1) == SEMICOLON) return;
 
-            switch (peek().type) {
+            switch (tokens.type(current)) {
                 case CLASS:
                 case FUN:
                 case VAR:
+                case IMPORT:
                 case FOR:
                 case IF:
                 case WHILE:
@@ -0,0 +1,60 @@
+package lox_compiladores;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Fila limitada de um produtor e um consumidor, sem locks: cada lado só escreve o próprio índice.
+// Quem encontra a fila cheia (ou vazia) estaciona com LockSupport até o outro lado avançar.
+// O consumidor que desiste fecha a fila: daí em diante put descarta, e o produtor não fica preso nela.
+final class PipeQueue<T> {
+    private final Object[] slots;
+    private final int mask;
+    private volatile long head = 0; // próximo a ler, escrito só pelo consumidor
+    private volatile long tail = 0; // próximo a escrever, escrito só pelo produtor
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+    private volatile boolean closed = false;
+
+    PipeQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+    }
+
+    void put(T item) {
+        long t = tail;
+        while (t - head == slots.length) {
+            if (closed) return;
+            waitingProducer = Thread.currentThread();
+            if (t - head == slots.length && !closed) LockSupport.park(this);
+            waitingProducer = null;
+        }
+        slots[(int)t & mask] = item;
+        tail = t + 1;
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    T take() {
+        long h = head;
+        while (h == tail) {
+            waitingConsumer = Thread.currentThread();
+            if (h == tail) LockSupport.park(this);
+            waitingConsumer = null;
+        }
+        int slot = (int)h & mask;
+        T item = (T)slots[slot];
+        slots[slot] = null;
+        head = h + 1;
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+        return item;
+    }
+
+    // Chamado pelo consumidor quando não vai mais ler
+    void close() {
+        closed = true;
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+}
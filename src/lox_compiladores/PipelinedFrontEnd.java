@@ -0,0 +1,151 @@
+package lox_compiladores;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Front end em pipeline: o scanner manda pedaços de tokens para o parser por uma fila limitada,
+// o parser manda cada declaração de topo pronta para o resolver, e as três fases rodam ao mesmo tempo.
+// Os erros de cada fase ficam guardados e só são impressos no fim, na mesma ordem e com o mesmo
+// corte da versão sequencial (erro léxico esconde os sintáticos, que escondem os semânticos).
+class PipelinedFrontEnd {
+    private static final int CHUNK_SIZE = 4096;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final Stmt DONE = new Stmt.Block(null, 0);
+
+    private final Diagnostics scanDiagnostics = new Diagnostics();
+    private final Diagnostics parseDiagnostics = new Diagnostics();
+    private final Diagnostics resolveDiagnostics = new Diagnostics();
+    private volatile Throwable failure;
+
+    // Devolve as declarações resolvidas, ou null se alguma fase reportou erro
+    List<Stmt> compile(ByteBuffer source, LoxInterpreter interpreter) {
+        ByteScanner scanner = new ByteScanner(source, scanDiagnostics);
+        return compile(sink -> scanner.scan(CHUNK_SIZE, sink), interpreter);
+    }
+
+    List<Stmt> compile(String source, LoxInterpreter interpreter) {
+        Scanner scanner = new Scanner(source, scanDiagnostics);
+        return compile(sink -> scanner.scan(CHUNK_SIZE, sink), interpreter);
+    }
+
+    private interface ChunkedScan {
+        void run(Consumer<TokenBuffer> sink);
+    }
+
+    private List<Stmt> compile(ChunkedScan scan, LoxInterpreter interpreter) {
+        PipeQueue<TokenBuffer> chunks = new PipeQueue<>(QUEUE_CAPACITY);
+        PipeQueue<Stmt> declarations = new PipeQueue<>(QUEUE_CAPACITY * 64);
+        StreamedTokens tokens = new StreamedTokens(chunks);
+
+        Thread scanning = new Thread(() -> {
+            boolean finished = false;
+            try {
+                scan.run(chunks::put);
+                finished = true;
+            } catch (Throwable error) {
+                failure = error;
+            } finally {
+                // Garante um EOF para o parser não ficar esperando para sempre
+                if (!finished) {
+                    TokenBuffer end = new TokenBuffer((offset, length) -> "", 1);
+                    end.add(TokenType.EOF, 0, 0, 0);
+                    chunks.put(end);
+                }
+            }
+        }, "lox-scanner");
+
+        // Pilha grande como a dos workers do daemon: o parser é recursivo e expressões fundas estouram 1 MB
+        Thread parsing = new Thread(null, () -> {
+            try {
+                Parser parser = new Parser(tokens, parseDiagnostics);
+                while (parser.hasNext()) {
+                    Stmt statement = parser.next();
+                    if (statement != null) declarations.put(statement);
+                }
+            } catch (Throwable error) {
+                failure = error;
+            } finally {
+                // Se o parser morreu no meio o scanner pode estar parado na fila cheia; fechar a fila o solta
+                chunks.close();
+                declarations.put(DONE);
+            }
+        }, "lox-parser", Daemon.STACK_SIZE);
+
+        scanning.setDaemon(true);
+        parsing.setDaemon(true);
+        scanning.start();
+        parsing.start();
+
+        // O resolver roda na thread de quem chamou, já que escreve nas tabelas do interpretador
+        Resolver resolver = new Resolver(interpreter, resolveDiagnostics);
+        List<Stmt> statements = new ArrayList<>();
+        try {
+            for (Stmt statement = declarations.take(); statement != DONE; statement = declarations.take()) {
+                statements.add(statement);
+                resolver.resolve(statement);
+            }
+        } finally {
+            declarations.close();
+        }
+
+        try {
+            scanning.join();
+            parsing.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Um Error (estouro de pilha, falta de memória) sai como sairia na versão sequencial
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new IllegalStateException("Pipelined front end failed.", failure);
+
+        if (report(scanDiagnostics)) return null;
+        if (report(parseDiagnostics)) return null;
+        if (report(resolveDiagnostics)) return null;
+        return statements;
+    }
+
+    // Descarrega a fase no sink padrão do Lox (que marca hadError); true se ela teve erro
+    private boolean report(Diagnostics phase) {
+        phase.flush(System.err, System.out);
+        if (!phase.hadError()) return false;
+        Lox.hadError = true;
+        return true;
+    }
+
+    // Visão contínua dos pedaços que chegam pela fila; bloqueia se o parser alcança o scanner
+    private static final class StreamedTokens implements TokenStream {
+        private final PipeQueue<TokenBuffer> chunks;
+        private final List<TokenBuffer> received = new ArrayList<>();
+
+        StreamedTokens(PipeQueue<TokenBuffer> chunks) {
+            this.chunks = chunks;
+        }
+
+        private TokenBuffer chunk(int index) {
+            int chunk = index / CHUNK_SIZE;
+            while (received.size() <= chunk) {
+                // O parser só olha um token para trás, então pedaços antigos podem ser soltos
+                if (received.size() >= 2) received.set(received.size() - 2, null);
+                received.add(chunks.take());
+            }
+            return received.get(chunk);
+        }
+
+        @Override
+        public TokenType type(int index) {
+            return chunk(index).type(index % CHUNK_SIZE);
+        }
+
+        @Override
+        public Object literal(int index) {
+            return chunk(index).literal(index % CHUNK_SIZE);
+        }
+
+        @Override
+        public Token token(int index) {
+            return chunk(index).token(index % CHUNK_SIZE);
+        }
+    }
+}
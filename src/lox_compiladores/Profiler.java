@@ -0,0 +1,174 @@
+package lox_compiladores;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+// Profiler por amostragem no nível do Lox (--profile=arquivo). Cada interpretador mantém uma pilha
+// sombra com as funções Lox em execução; uma thread à parte lê essas pilhas a cada INTERVAL sem parar
+// ninguém e conta quantas vezes cada pilha apareceu. No fim sai o formato "collapsed" (uma linha por
+// pilha, "raiz;...;topo contagem"), que flamegraph.pl e speedscope leem, e uma tabela self/total.
+//
+// É tempo de relógio: uma thread parada num join ou receive conta na função onde está parada.
+final class Profiler {
+    // 100 amostras por segundo, como os profilers de JVM: mais que isso a própria amostragem aparece no tempo
+    private static final long INTERVAL = 10_000_000; // ns
+    private static final String ROOT = "<script>";
+    private static final int TABLE_ROWS = 25;
+
+    // Pilhas das threads que estão rodando Lox (o programa e as tarefas dentro de alguma função)
+    private final Set<Stack> stacks = ConcurrentHashMap.newKeySet();
+    // Classe de cada método, registrada quando a classe é declarada
+    private final Map<Stmt.Function, String> owners = new ConcurrentHashMap<>();
+    // Só a thread de amostragem mexe nestes
+    private final Map<String, Integer> samples = new HashMap<>();
+    private final Map<Stmt.Function, String> labels = new HashMap<>();
+    private int total = 0;
+
+    private volatile boolean running = false;
+    private Thread sampler;
+
+    // Pilha sombra de uma thread. Escrita sem sincronização pela dona e lida pela amostragem: uma
+    // amostra pode ver um quadro atrasado, o que só mexe na contagem daquela amostra
+    static final class Stack {
+        private final Set<Stack> active;
+        private final boolean root;
+        private Stmt.Function[] frames = new Stmt.Function[64];
+        private int depth = 0;
+
+        private Stack(Set<Stack> active, boolean root) {
+            this.active = active;
+            this.root = root;
+        }
+
+        void push(Stmt.Function function) {
+            if (depth == frames.length) frames = Arrays.copyOf(frames, depth * 2);
+            frames[depth] = function;
+            // Tarefas (inclusive as das nativas paralelas, que são muitas) só ficam no conjunto
+            // enquanto estão dentro de uma função
+            if (depth++ == 0 && !root) active.add(this);
+        }
+
+        void pop() {
+            if (--depth == 0 && !root) active.remove(this);
+        }
+    }
+
+    // Pilha do programa principal: amostrada sempre, mesmo fora de funções (como ROOT)
+    Stack stack() {
+        Stack stack = new Stack(stacks, true);
+        stacks.add(stack);
+        return stack;
+    }
+
+    // Pilha de uma tarefa
+    Stack taskStack() {
+        return new Stack(stacks, false);
+    }
+
+    void method(Stmt.Function method, String className) {
+        owners.put(method, className);
+    }
+
+    void start() {
+        running = true;
+        sampler = new Thread(this::sample, "lox-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    void stop() {
+        running = false;
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sample() {
+        StringBuilder line = new StringBuilder();
+        while (running) {
+            LockSupport.parkNanos(INTERVAL);
+            for (Stack stack : stacks) {
+                Stmt.Function[] frames = stack.frames;
+                int depth = Math.min(stack.depth, frames.length);
+                if (depth <= 0 && !stack.root) continue;
+
+                line.setLength(0);
+                line.append(ROOT);
+                for (int i = 0; i < depth; i++) {
+                    Stmt.Function frame = frames[i];
+                    if (frame == null) break;
+                    line.append(';').append(label(frame));
+                }
+                samples.merge(line.toString(), 1, Integer::sum);
+                total++;
+            }
+        }
+    }
+
+    private String label(Stmt.Function function) {
+        String label = labels.get(function);
+        if (label == null) {
+            String owner = owners.get(function);
+            String name = owner == null ? function.name.lexeme : owner + "." + function.name.lexeme;
+            label = name + " (line " + function.name.line + ")";
+            labels.put(function, label);
+        }
+        return label;
+    }
+
+    // Formato collapsed, pilhas mais frequentes primeiro. Chamar depois de stop()
+    void writeCollapsed(Path path) throws IOException {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(samples.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+        try (Writer out = Files.newBufferedWriter(path)) {
+            for (Map.Entry<String, Integer> entry : entries) {
+                out.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        }
+    }
+
+    // Tabela por função: self é o topo da pilha, total é estar em qualquer ponto dela (recursão conta uma vez)
+    void report(PrintStream out) {
+        Map<String, Integer> self = new HashMap<>();
+        Map<String, Integer> inclusive = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : samples.entrySet()) {
+            String[] frames = entry.getKey().split(";");
+            int count = entry.getValue();
+            self.merge(frames[frames.length - 1], count, Integer::sum);
+            seen.clear();
+            for (String frame : frames) {
+                if (seen.add(frame)) inclusive.merge(frame, count, Integer::sum);
+            }
+        }
+
+        List<String> functions = new ArrayList<>(inclusive.keySet());
+        functions.sort((a, b) -> {
+            int bySelf = self.getOrDefault(b, 0) - self.getOrDefault(a, 0);
+            return bySelf != 0 ? bySelf : inclusive.get(b) - inclusive.get(a);
+        });
+
+        out.printf("Lox profile: %d samples, one every %d ms%n", total, INTERVAL / 1_000_000);
+        out.printf("%8s %8s  %s%n", "self", "total", "function");
+        double scale = total == 0 ? 0 : 100.0 / total;
+        for (int i = 0; i < Math.min(TABLE_ROWS, functions.size()); i++) {
+            String function = functions.get(i);
+            out.printf("%7.1f%% %7.1f%%  %s%n",
+                    self.getOrDefault(function, 0) * scale, inclusive.get(function) * scale, function);
+        }
+    }
+}
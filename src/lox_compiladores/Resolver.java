@@ -3,11 +3,12 @@ package lox_compiladores;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Void> {
-    private final LoxInterpreter interpreter;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+    // Tabela de resolução (expressão -> distância do escopo) que o interpretador vai consultar
+    private final Map<Expr, Integer> locals;
+    private final Diagnostics diagnostics;
+    private Scopes scopes = new Scopes();
     private FunctionType currentFunction = FunctionType.NONE;
     private ClassType currentClass = ClassType.NONE;
 
@@ -20,24 +21,46 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     }
 
     // Mini sistema de tipos
-    private enum LoxType {
+    enum LoxType {
         NIL, BOOLEAN, NUMBER, STRING, FUNCTION, CLASS, INSTANCE
     }
 
-    private final Map<String, LoxType> variableTypes = new HashMap<>();
+    private final Map<Symbol, LoxType> variableTypes;
 
     public Resolver(LoxInterpreter interpreter) {
-        this.interpreter = interpreter;
+        this(interpreter, Lox.diagnostics);
+    }
+
+    Resolver(LoxInterpreter interpreter, Diagnostics diagnostics) {
+        this(interpreter.locals, diagnostics);
+    }
+
+    Resolver(Map<Expr, Integer> locals, Diagnostics diagnostics) {
+        this(locals, diagnostics, new HashMap<>());
+    }
+
+    // Continua de onde outro resolver parou no nível de topo, com os tipos já conhecidos
+    Resolver(Map<Expr, Integer> locals, Diagnostics diagnostics, Map<Symbol, LoxType> variableTypes) {
+        this.locals = locals;
+        this.diagnostics = diagnostics;
+        this.variableTypes = variableTypes;
     }
 
     // Método principal
     public void resolve(List<Stmt> statements) {
+        LoxEvents.Compile event = LoxEvents.ENABLED ? new LoxEvents.Compile(LoxEvents.Compile.RESOLVER) : null;
+        if (event != null) event.begin();
+        resolveAll(statements);
+        if (event != null) event.commit();
+    }
+
+    private void resolveAll(List<Stmt> statements) {
         for (Stmt statement : statements) {
             resolve(statement);
         }
     }
 
-    private void resolve(Stmt stmt) {
+    void resolve(Stmt stmt) {
         stmt.accept(this);
     }
 
@@ -47,6 +70,12 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
 
     // Resolve função
     private void resolveFunction(Stmt.Function function, FunctionType type) {
+        // Corpo ainda não analisado: guarda os escopos de agora para resolver na primeira chamada
+        if (function.body() == null) {
+            function.lazyBody.defer(new Deferred(scopes, currentClass, type));
+            return;
+        }
+
         FunctionType enclosingFunction = currentFunction;
         currentFunction = type;
 
@@ -55,53 +84,66 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
             declare(param);
             define(param);
         }
-        resolve(function.body);
+        resolveAll(function.body());
         endScope();
         currentFunction = enclosingFunction;
     }
 
+    // Estado do resolver no ponto em que um corpo preguiçoso foi encontrado
+    static final class Deferred {
+        private final Scopes scopes;
+        private final ClassType currentClass;
+        private final FunctionType type;
+
+        private Deferred(Scopes scopes, ClassType currentClass, FunctionType type) {
+            this.scopes = scopes.copy();
+            this.currentClass = currentClass;
+            this.type = type;
+        }
+    }
+
+    // Resolve um corpo preguiçoso recém-analisado como se estivesse no lugar original
+    void resolveDeferred(Stmt.Function function, Deferred deferred) {
+        scopes = deferred.scopes.copy();
+        currentClass = deferred.currentClass;
+        resolveFunction(function, deferred.type);
+    }
+
     // Gerenciamento de escopos
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        scopes.begin();
     }
 
     private void endScope() {
-        scopes.pop();
+        scopes.end();
     }
 
     // Declaração de variável
     private void declare(Token name) {
         if (scopes.isEmpty()) return;
 
-        Map<String, Boolean> scope = scopes.peek();
-        if (scope.containsKey(name.lexeme)) {
-            Lox.error(name, "Already a variable with this name in this scope.");
+        if (!scopes.declare(name.symbol)) {
+            diagnostics.error(name, "Already a variable with this name in this scope.");
         }
-
-        scope.put(name.lexeme, false);
     }
 
     // Definição de variável
     private void define(Token name) {
         if (scopes.isEmpty()) return;
-        scopes.peek().put(name.lexeme, true);
+        scopes.define(name.symbol);
     }
 
     // Resolução de variável local
     private void resolveLocal(Expr expr, Token name) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
-            }
-        }
+        int distance = scopes.distance(name.symbol);
+        if (distance >= 0) locals.put(expr, distance);
     }
 
     // Implementação do Visitor para Statements
     @Override
     public Void visitBlockStmt(Stmt.Block stmt) {
         beginScope();
-        resolve(stmt.statements);
+        resolveAll(stmt.statements);
         endScope();
         return null;
     }
@@ -115,8 +157,8 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
         define(stmt.name);
 
         if (stmt.superclass != null &&
-            stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
-            Lox.error(stmt.superclass.name, "A class can't inherit from itself.");
+            stmt.name.symbol == stmt.superclass.name.symbol) {
+            diagnostics.error(stmt.superclass.name, "A class can't inherit from itself.");
         }
 
         if (stmt.superclass != null) {
@@ -126,15 +168,15 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
 
         if (stmt.superclass != null) {
             beginScope();
-            scopes.peek().put("super", true);
+            scopes.define(Symbol.SUPER);
         }
 
         beginScope();
-        scopes.peek().put("this", true);
+        scopes.define(Symbol.THIS);
 
         for (Stmt.Function method : stmt.methods) {
             FunctionType declaration = FunctionType.METHOD;
-            if (method.name.lexeme.equals("init")) {
+            if (method.name.symbol == Symbol.INIT) {
                 declaration = FunctionType.INITIALIZER;
             }
 
@@ -181,12 +223,12 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     @Override
     public Void visitReturnStmt(Stmt.Return stmt) {
         if (currentFunction == FunctionType.NONE) {
-            Lox.error(stmt.keyword, "Can't return from top-level code.");
+            diagnostics.error(stmt.keyword, "Can't return from top-level code.");
         }
 
         if (stmt.value != null) {
             if (currentFunction == FunctionType.INITIALIZER) {
-                Lox.error(stmt.keyword, "Can't return a value from an initializer.");
+                diagnostics.error(stmt.keyword, "Can't return a value from an initializer.");
             }
 
             resolve(stmt.value);
@@ -202,7 +244,7 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
             resolve(stmt.initializer);
             // Armazenar tipo da variável
             LoxType type = inferType(stmt.initializer);
-            variableTypes.put(stmt.name.lexeme, type);
+            variableTypes.put(stmt.name.symbol, type);
         }
         define(stmt.name);
         return null;
@@ -215,6 +257,15 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
         return null;
     }
 
+    @Override
+    public Void visitImportStmt(Stmt.Import stmt) {
+        // Os imports são ligados antes da execução olhando só o nível mais externo do programa
+        if (!scopes.isEmpty()) {
+            diagnostics.error(stmt.keyword, "Can only import at top level.");
+        }
+        return null;
+    }
+
     // Implementação do ExpressionEvaluator para Expressions
     @Override
     public Void evaluateAssignment(Expr.Assign expr) {
@@ -231,7 +282,7 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
         // Verificação de tipos básica
         LoxType leftType = inferType(expr.left);
         LoxType rightType = inferType(expr.right);
-        checkTypeCompatibility(expr.operator, leftType, rightType);
+        checkTypeCompatibility(expr.operator, expr.line, leftType, rightType);
         
         return null;
     }
@@ -281,9 +332,9 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     @Override
     public Void evaluateSuper(Expr.SuperCall expr) {
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword, "Can't use 'super' outside of a class.");
+            diagnostics.error(expr.keyword, "Can't use 'super' outside of a class.");
         } else if (currentClass != ClassType.SUBCLASS) {
-            Lox.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
+            diagnostics.error(expr.keyword, "Can't use 'super' in a class with no superclass.");
         }
 
         resolveLocal(expr, expr.keyword);
@@ -293,7 +344,7 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     @Override
     public Void evaluateThis(Expr.ThisRef expr) {
         if (currentClass == ClassType.NONE) {
-            Lox.error(expr.keyword, "Can't use 'this' outside of a class.");
+            diagnostics.error(expr.keyword, "Can't use 'this' outside of a class.");
             return null;
         }
 
@@ -309,9 +360,8 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
 
     @Override
     public Void evaluateVariable(Expr.VarRef expr) {
-        if (!scopes.isEmpty() &&
-            scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            Lox.error(expr.name, "Can't read local variable in its own initializer.");
+        if (!scopes.isEmpty() && scopes.declaredOnly(expr.name.symbol)) {
+            diagnostics.error(expr.name, "Can't read local variable in its own initializer.");
         }
 
         resolveLocal(expr, expr.name);
@@ -319,13 +369,9 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     }
 
     // Método para verificar se uma variável está declarada
-    private boolean isVariableDeclared(String name) {
+    private boolean isVariableDeclared(Symbol name) {
         // Verifica nos escopos locais
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name)) {
-                return true;
-            }
-        }
+        if (scopes.distance(name) >= 0) return true;
         // Se não encontrou nos escopos locais, verifica se existe globalmente
         // (isso deveria ser feito pelo interpreter, mas podemos dar uma dica)
         return false;
@@ -333,21 +379,14 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
 
     // Método para validar uso de variáveis não declaradas
     private void validateVariableUsage(Token name) {
-        boolean found = false;
-        
         // Verifica nos escopos locais
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                found = true;
-                break;
-            }
-        }
+        boolean found = scopes.distance(name.symbol) >= 0;
         
         // Se não encontrou nos escopos locais, pode ser global
         // O interpreter vai validar isso em tempo de execução
         if (!found && !scopes.isEmpty()) {
             // Adiciona warning para possível variável não declarada
-            System.out.println("Warning: Variable '" + name.lexeme + "' may not be declared.");
+            diagnostics.warning("Warning: Variable '" + name.lexeme + "' may not be declared.");
         }
     }
 
@@ -361,12 +400,12 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
             if (value instanceof String) return LoxType.STRING;
         }
         if (expr instanceof Expr.VarRef) {
-            String name = ((Expr.VarRef) expr).name.lexeme;
+            Symbol name = ((Expr.VarRef) expr).name.symbol;
             return variableTypes.getOrDefault(name, LoxType.NIL);
         }
         if (expr instanceof Expr.BinaryOp) {
             Expr.BinaryOp bin = (Expr.BinaryOp) expr;
-            switch (bin.operator.type) {
+            switch (bin.operator) {
                 case PLUS:
                     LoxType leftType = inferType(bin.left);
                     LoxType rightType = inferType(bin.right);
@@ -396,19 +435,19 @@ public class Resolver implements Expr.ExpressionEvaluator<Void>, Stmt.Visitor<Vo
     }
 
     // Método para verificar compatibilidade de tipos
-    private void checkTypeCompatibility(Token operator, LoxType left, LoxType right) {
-        switch (operator.type) {
+    private void checkTypeCompatibility(TokenType operator, int line, LoxType left, LoxType right) {
+        switch (operator) {
             case PLUS:
                 if (!((left == LoxType.NUMBER && right == LoxType.NUMBER) ||
                       (left == LoxType.STRING && right == LoxType.STRING))) {
-                    System.out.println("Warning: Type mismatch in addition at line " + operator.line);
+                    diagnostics.warning("Warning: Type mismatch in addition at line " + line);
                 }
                 break;
             case MINUS:
             case STAR:
             case SLASH:
                 if (left != LoxType.NUMBER || right != LoxType.NUMBER) {
-                    System.out.println("Warning: Arithmetic operations require numbers at line " + operator.line);
+                    diagnostics.warning("Warning: Arithmetic operations require numbers at line " + line);
                 }
                 break;
             default:
@@ -1,19 +1,20 @@
 package lox_compiladores;
 
 import java.util.List;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 
 public class Scanner {
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final Diagnostics diagnostics;
+    private TokenBuffer tokens;
     private int start = 0;
     private int current = 0;
     private int line = 1;
 
-    private static final Map<String, TokenType> keywords = new HashMap<>();
+    static final Map<String, TokenType> keywords = new HashMap<>();
 
     static {
         keywords.put("and", TokenType.AND);
@@ -23,6 +24,7 @@ public class Scanner {
         keywords.put("for", TokenType.FOR);
         keywords.put("fun", TokenType.FUN);
         keywords.put("if", TokenType.IF);
+        keywords.put("import", TokenType.IMPORT);
         keywords.put("nil", TokenType.NIL);
         keywords.put("or", TokenType.OR);
         keywords.put("print", TokenType.PRINT);
@@ -35,18 +37,56 @@ public class Scanner {
     }
 
     public Scanner(String source) {
+        this(source, Lox.diagnostics);
+    }
+
+    Scanner(String source, Diagnostics diagnostics) {
+        this(source, 1, diagnostics);
+    }
+
+    // Trecho de um texto maior, que começa na linha dada
+    Scanner(String source, int line, Diagnostics diagnostics) {
         this.source = source;
+        this.line = line;
+        this.diagnostics = diagnostics;
+        this.tokens = new TokenBuffer(this::text);
     }
 
-    public List<Token> scanTokens() {
+    private String text(int offset, int length) {
+        return source.substring(offset, offset + length);
+    }
+
+    public TokenBuffer scan() {
+        LoxEvents.Compile event = LoxEvents.ENABLED ? new LoxEvents.Compile(LoxEvents.Compile.SCANNER) : null;
+        if (event != null) event.begin();
         while (!isAtEnd()) {
             start = current;
             scanToken();
         }
-        tokens.add(new Token(TokenType.EOF, "", null, line));
+        tokens.add(TokenType.EOF, current, 0, line);
+        if (event != null) event.commit();
         return tokens;
     }
 
+    public List<Token> scanTokens() {
+        return scan().toList();
+    }
+
+    // Entrega os tokens em pedaços de exatamente chunkSize tokens (o último pode ser menor e termina no EOF)
+    void scan(int chunkSize, Consumer<TokenBuffer> sink) {
+        tokens = new TokenBuffer(this::text, chunkSize);
+        while (!isAtEnd()) {
+            start = current;
+            scanToken();
+            if (tokens.size() == chunkSize) {
+                sink.accept(tokens);
+                tokens = new TokenBuffer(this::text, chunkSize);
+            }
+        }
+        tokens.add(TokenType.EOF, current, 0, line);
+        sink.accept(tokens);
+    }
+
     private boolean isAtEnd() {
         return current >= source.length();
     }
@@ -89,7 +129,7 @@ public class Scanner {
                 } else if (isAlpha(c)) {
                     identifier();
                 } else {
-                    Lox.error(line, "Unexpected character: '" + c + "'");
+                    diagnostics.error(line, "Unexpected character: '" + c + "'");
                 }
                 break;
         }
@@ -105,8 +145,11 @@ public class Scanner {
     }
 
     private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        if (literal == null) {
+            tokens.add(type, start, current - start, line);
+        } else {
+            tokens.addLiteral(type, literal, start, current - start, line);
+        }
     }
 
     private boolean match(char expected) {
@@ -128,7 +171,7 @@ public class Scanner {
         }
 
         if (isAtEnd()) {
-            Lox.error(line, "Unterminated string.");
+            diagnostics.error(line, "Unterminated string.");
             return;
         }
 
@@ -172,6 +215,10 @@ public class Scanner {
         String text = source.substring(start, current);
         TokenType type = keywords.get(text);
         if (type == null) type = TokenType.IDENTIFIER;
-        addToken(type);
+        if (type == TokenType.IDENTIFIER || type == TokenType.THIS || type == TokenType.SUPER) {
+            tokens.addName(type, Symbol.intern(text), start, current - start, line);
+        } else {
+            tokens.add(type, start, current - start, line);
+        }
     }
 }
\ No newline at end of file
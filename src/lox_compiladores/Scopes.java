@@ -0,0 +1,158 @@
+package lox_compiladores;
+
+import java.util.Arrays;
+
+// Pilha de escopos do resolver em arrays planos. Cada variável declarada vira uma entrada (nome, escopo,
+// se já foi definida, qual entrada de mesmo nome ela esconde) e uma tabela nome -> entrada mais interna
+// dá a distância de qualquer nome em O(1), sem olhar escopo por escopo.
+final class Scopes {
+    private static final int MISSING = -1;
+
+    // Entradas, na ordem em que foram declaradas
+    private Symbol[] names = new Symbol[64];
+    private int[] levels = new int[64];
+    private boolean[] defined = new boolean[64];
+    private int[] shadowed = new int[64];
+    private int count = 0;
+
+    // Onde cada escopo aberto começa na lista de entradas
+    private int[] starts = new int[16];
+    private int depth = 0;
+
+    // Tabela aberta por identidade do Symbol: nome -> entrada mais interna (ou MISSING)
+    private Symbol[] keys = new Symbol[64];
+    private int[] innermost = new int[64];
+    private int used = 0;
+
+    Scopes() {}
+
+    // Só as entradas vivas: a tabela de nomes do original guarda todo nome que já passou por ela e só
+    // cresce, então é refeita a partir das entradas, e a cópia custa o que está aberto, não o histórico
+    private Scopes(Scopes other) {
+        int capacity = Math.max(64, other.count);
+        names = Arrays.copyOf(other.names, capacity);
+        levels = Arrays.copyOf(other.levels, capacity);
+        defined = Arrays.copyOf(other.defined, capacity);
+        shadowed = Arrays.copyOf(other.shadowed, capacity);
+        count = other.count;
+        starts = Arrays.copyOf(other.starts, Math.max(16, other.depth));
+        depth = other.depth;
+        // Em ordem de declaração, a última entrada de cada nome é a mais interna
+        for (int i = 0; i < count; i++) innermost[slot(names[i])] = i;
+    }
+
+    Scopes copy() {
+        return new Scopes(this);
+    }
+
+    boolean isEmpty() {
+        return depth == 0;
+    }
+
+    int size() {
+        return depth;
+    }
+
+    void begin() {
+        if (depth == starts.length) starts = Arrays.copyOf(starts, depth * 2);
+        starts[depth++] = count;
+    }
+
+    void end() {
+        int start = starts[--depth];
+        for (int i = count - 1; i >= start; i--) {
+            innermost[slot(names[i])] = shadowed[i];
+            names[i] = null;
+        }
+        count = start;
+    }
+
+    // Declara no escopo mais interno; false se o nome já existia nele
+    boolean declare(Symbol name) {
+        int slot = slot(name);
+        int binding = innermost[slot];
+        if (binding != MISSING && levels[binding] == depth - 1) {
+            defined[binding] = false;
+            return false;
+        }
+        push(name, slot, binding, false);
+        return true;
+    }
+
+    // Marca como definida no escopo mais interno, declarando se preciso
+    void define(Symbol name) {
+        int slot = slot(name);
+        int binding = innermost[slot];
+        if (binding != MISSING && levels[binding] == depth - 1) {
+            defined[binding] = true;
+        } else {
+            push(name, slot, binding, true);
+        }
+    }
+
+    // Quantos escopos acima do mais interno o nome está, ou -1 se não está em nenhum
+    int distance(Symbol name) {
+        int binding = innermost[slot(name)];
+        return binding == MISSING ? -1 : depth - 1 - levels[binding];
+    }
+
+    // Declarado no escopo mais interno mas ainda não definido (lendo a variável no próprio inicializador)
+    boolean declaredOnly(Symbol name) {
+        int binding = innermost[slot(name)];
+        return binding != MISSING && levels[binding] == depth - 1 && !defined[binding];
+    }
+
+    private void push(Symbol name, int slot, int previous, boolean isDefined) {
+        if (count == names.length) {
+            int capacity = count * 2;
+            names = Arrays.copyOf(names, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            defined = Arrays.copyOf(defined, capacity);
+            shadowed = Arrays.copyOf(shadowed, capacity);
+        }
+        names[count] = name;
+        levels[count] = depth - 1;
+        defined[count] = isDefined;
+        shadowed[count] = previous;
+        innermost[slot] = count++;
+    }
+
+    // Posição do nome na tabela, inserindo se for a primeira vez que aparece
+    private int slot(Symbol name) {
+        int mask = keys.length - 1;
+        int slot = spread(name.hashCode()) & mask;
+        while (true) {
+            Symbol key = keys[slot];
+            if (key == name) return slot;
+            if (key == null) break;
+            slot = (slot + 1) & mask;
+        }
+        if (used * 2 >= keys.length) {
+            grow();
+            return slot(name);
+        }
+        keys[slot] = name;
+        innermost[slot] = MISSING;
+        used++;
+        return slot;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        Symbol[] oldKeys = keys;
+        int[] oldInnermost = innermost;
+        keys = new Symbol[oldKeys.length * 2];
+        innermost = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = spread(oldKeys[i].hashCode()) & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            innermost[slot] = oldInnermost[i];
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package lox_compiladores;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Snapshot do ambiente global depois de rodar um prelúdio: o programa do prelúdio (.loxc, já resolvido)
+// mais o grafo de objetos alcançável a partir dos globais (escopos, funções, classes, instâncias).
+// Funções apontam para a declaração pela posição em pré-ordem no programa, e nativas vão por nome.
+// Carregar um snapshot deixa o interpretador no mesmo estado sem escanear nem executar o prelúdio de novo.
+final class Snapshot {
+    static final int MAGIC = 0x4C4F5853; // "LOXS"
+    static final int FORMAT = 1;
+
+    private static final byte ENVIRONMENT = 1, FUNCTION = 2, CLASS = 3, INSTANCE = 4;
+    private static final byte NIL = 0, TRUE = 1, FALSE = 2, NUMBER = 3, STRING = 4, OBJECT = 5, NATIVE = 6;
+
+    private Snapshot() {}
+
+    // ---------------------------------------------------------------- escrita
+
+    static void save(Path file, LoxInterpreter interpreter, List<Stmt> prelude, Map<Expr, Integer> locals)
+            throws IOException {
+        Map<Stmt.Function, Integer> functions = new IdentityHashMap<>();
+        for (Stmt.Function function : functions(prelude)) functions.put(function, functions.size());
+
+        Writer writer = new Writer(interpreter.globals, functions);
+        byte[] program = AstCodec.encode(prelude, locals, List.of());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt(program.length);
+        out.write(program);
+        writer.write(out);
+        out.flush();
+
+        // Temporário + move, como no cache: um snapshot pela metade nunca fica no lugar do bom
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Writer {
+        private final Environment globals;
+        private final Map<Stmt.Function, Integer> functions;
+        private final Map<Object, Integer> ids = new IdentityHashMap<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        Writer(Environment globals, Map<Stmt.Function, Integer> functions) {
+            this.globals = globals;
+            this.functions = functions;
+            place(globals);
+            // Percorre o grafo; cada objeto entra depois do que seu construtor precisa
+            // (escopo pai, closure, superclasse, classe da instância)
+            for (int i = 0; i < objects.size(); i++) {
+                for (Object value : contents(objects.get(i)).values()) place(value);
+            }
+        }
+
+        private void place(Object value) {
+            if (!isObject(value) || ids.containsKey(value)) return;
+            if (value instanceof Environment) {
+                if (value != globals) place(((Environment) value).enclosing);
+            } else if (value instanceof LoxFunc) {
+                LoxFunc function = (LoxFunc) value;
+                if (!functions.containsKey(function.declaration())) {
+                    throw new IllegalStateException("Cannot snapshot function '"
+                            + function.declaration().name.lexeme + "' declared outside the prelude.");
+                }
+                place(function.closure());
+            } else if (value instanceof LoxClasses) {
+                place(((LoxClasses) value).superclass);
+            } else if (value instanceof LoxInstance) {
+                place(((LoxInstance) value).klass());
+            }
+            ids.put(value, objects.size());
+            objects.add(value);
+        }
+
+        private boolean isObject(Object value) {
+            return value instanceof Environment || value instanceof LoxFunc
+                    || value instanceof LoxClasses || value instanceof LoxInstance;
+        }
+
+        private Map<?, ?> contents(Object object) {
+            if (object instanceof Environment) return ((Environment) object).values();
+            if (object instanceof LoxClasses) return ((LoxClasses) object).methods();
+            if (object instanceof LoxInstance) return ((LoxInstance) object).fields();
+            return Map.of();
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(objects.size());
+            for (Object object : objects) {
+                if (object instanceof Environment) {
+                    Environment environment = (Environment) object;
+                    out.writeByte(ENVIRONMENT);
+                    out.writeInt(environment == globals ? -1 : ids.get(environment.enclosing));
+                } else if (object instanceof LoxFunc) {
+                    LoxFunc function = (LoxFunc) object;
+                    out.writeByte(FUNCTION);
+                    out.writeInt(functions.get(function.declaration()));
+                    out.writeInt(ids.get(function.closure()));
+                    out.writeBoolean(function.isInitializer());
+                } else if (object instanceof LoxClasses) {
+                    LoxClasses klass = (LoxClasses) object;
+                    out.writeByte(CLASS);
+                    writeString(out, klass.name);
+                    out.writeInt(klass.superclass == null ? -1 : ids.get(klass.superclass));
+                } else {
+                    out.writeByte(INSTANCE);
+                    out.writeInt(ids.get(((LoxInstance) object).klass()));
+                }
+            }
+
+            // Segunda passada: variáveis, métodos e campos, que podem apontar para qualquer objeto
+            for (Object object : objects) {
+                Map<?, ?> contents = contents(object);
+                out.writeInt(contents.size());
+                for (Map.Entry<?, ?> entry : contents.entrySet()) {
+                    writeString(out, ((Symbol) entry.getKey()).name);
+                    writeValue(out, entry.getValue());
+                }
+            }
+        }
+
+        private void writeValue(DataOutputStream out, Object value) throws IOException {
+            String nativeName = Natives.nameOf(value);
+            if (value == null) {
+                out.writeByte(NIL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                out.writeByte(NUMBER);
+                out.writeDouble((Double) value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString(out, (String) value);
+            } else if (nativeName != null) {
+                out.writeByte(NATIVE);
+                writeString(out, nativeName);
+            } else if (ids.containsKey(value)) {
+                out.writeByte(OBJECT);
+                out.writeInt(ids.get(value));
+            } else {
+                throw new IllegalStateException("Cannot snapshot value '" + value + "'.");
+            }
+        }
+
+        private void writeString(DataOutputStream out, String text) throws IOException {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    // ---------------------------------------------------------------- leitura
+
+    // Lança IOException se o arquivo não existir ou não for um snapshot deste formato
+    static void load(Path file, LoxInterpreter interpreter) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 12 || in.getInt() != MAGIC || in.getInt() != FORMAT) {
+                throw new IOException("Not a Lox snapshot.");
+            }
+            int length = in.getInt();
+            AstCodec.Decoded program = AstCodec.decode(in.slice(in.position(), length));
+            in.position(in.position() + length);
+
+            interpreter.resolve(program.locals);
+            new Reader(in, interpreter.globals, functions(program.statements)).read();
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted Lox snapshot.", e);
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final Environment globals;
+        private final List<Stmt.Function> functions;
+        private Object[] objects;
+
+        Reader(ByteBuffer in, Environment globals, List<Stmt.Function> functions) {
+            this.in = in;
+            this.globals = globals;
+            this.functions = functions;
+        }
+
+        void read() {
+            objects = new Object[in.getInt()];
+            for (int i = 0; i < objects.length; i++) {
+                byte kind = in.get();
+                switch (kind) {
+                    case ENVIRONMENT: {
+                        int enclosing = in.getInt();
+                        objects[i] = enclosing < 0 ? globals : new Environment((Environment) objects[enclosing]);
+                        break;
+                    }
+                    case FUNCTION: {
+                        Stmt.Function declaration = functions.get(in.getInt());
+                        Environment closure = (Environment) objects[in.getInt()];
+                        objects[i] = new LoxFunc(declaration, closure, in.get() != 0);
+                        break;
+                    }
+                    case CLASS: {
+                        String name = string();
+                        int superclass = in.getInt();
+                        objects[i] = new LoxClasses(name, superclass < 0 ? null : (LoxClasses) objects[superclass],
+                                new HashMap<>());
+                        break;
+                    }
+                    case INSTANCE:
+                        objects[i] = new LoxInstance((LoxClasses) objects[in.getInt()]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown snapshot object " + kind + ".");
+                }
+            }
+
+            for (Object object : objects) {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    Symbol name = Symbol.intern(string());
+                    Object value = value();
+                    if (object instanceof Environment) {
+                        ((Environment) object).define(name, value);
+                    } else if (object instanceof LoxClasses) {
+                        ((LoxClasses) object).methods().put(name, (LoxFunc) value);
+                    } else {
+                        ((LoxInstance) object).set(name, value);
+                    }
+                }
+            }
+        }
+
+        private Object value() {
+            byte tag = in.get();
+            switch (tag) {
+                case NIL: return null;
+                case TRUE: return true;
+                case FALSE: return false;
+                case NUMBER: return in.getDouble();
+                case STRING: return string();
+                case OBJECT: return objects[in.getInt()];
+                case NATIVE: {
+                    String name = string();
+                    LoxCallable function = Natives.named(name);
+                    if (function == null) throw new IllegalArgumentException("Unknown native '" + name + "'.");
+                    return function;
+                }
+                default: throw new IllegalArgumentException("Unknown snapshot value " + tag + ".");
+            }
+        }
+
+        private String string() {
+            byte[] utf8 = new byte[in.getInt()];
+            in.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    // ---------------------------------------------------------------- declarações
+
+    // Todas as declarações de função do programa em pré-ordem; escrita e leitura
+    // percorrem a mesma AST, então a posição identifica a declaração
+    private static List<Stmt.Function> functions(List<Stmt> statements) {
+        List<Stmt.Function> functions = new ArrayList<>();
+        ArrayDeque<Stmt> pending = new ArrayDeque<>();
+        for (int i = statements.size() - 1; i >= 0; i--) pending.push(statements.get(i));
+        while (!pending.isEmpty()) {
+            Stmt stmt = pending.pop();
+            List<? extends Stmt> children = List.of();
+            if (stmt instanceof Stmt.Function) {
+                Stmt.Function function = (Stmt.Function) stmt;
+                functions.add(function);
+                children = function.body();
+            } else if (stmt instanceof Stmt.Class) {
+                children = ((Stmt.Class) stmt).methods;
+            } else if (stmt instanceof Stmt.Block) {
+                children = ((Stmt.Block) stmt).statements;
+            } else if (stmt instanceof Stmt.If) {
+                Stmt.If branch = (Stmt.If) stmt;
+                children = branch.elseBranch == null ? List.of(branch.thenBranch)
+                        : List.of(branch.thenBranch, branch.elseBranch);
+            } else if (stmt instanceof Stmt.While) {
+                children = List.of(((Stmt.While) stmt).body);
+            }
+            for (int i = children.size() - 1; i >= 0; i--) pending.push(children.get(i));
+        }
+        return functions;
+    }
+}
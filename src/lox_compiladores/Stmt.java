@@ -13,6 +13,7 @@ public abstract class Stmt {
         R visitVarStmt(Var stmt);
         R visitWhileStmt(While stmt);
         R visitClassStmt(Class stmt);
+        R visitImportStmt(Import stmt);
     }
 
     public abstract <R> R accept(Visitor<R> visitor);
@@ -20,9 +21,12 @@ public abstract class Stmt {
     // 1. Bloco de código
     public static class Block extends Stmt {
         public final List<Stmt> statements;
+        // Linha do '{' (ou do 'for' que virou bloco), para erros ao abrir o escopo
+        public final int line;
 
-        public Block(List<Stmt> statements) {
+        public Block(List<Stmt> statements, int line) {
             this.statements = statements;
+            this.line = line;
         }
 
         @Override
@@ -49,12 +53,26 @@ public abstract class Stmt {
     public static class Function extends Stmt {
         public final Token name;
         public final List<Token> params;
-        public final List<Stmt> body;
+        // null enquanto um corpo preguiçoso ainda não foi analisado (ver LazyBody)
+        volatile List<Stmt> body;
+        final LazyBody lazyBody;
 
         public Function(Token name, List<Token> params, List<Stmt> body) {
             this.name = name;
             this.params = params;
             this.body = body;
+            this.lazyBody = null;
+        }
+
+        Function(Token name, List<Token> params, LazyBody lazyBody) {
+            this.name = name;
+            this.params = params;
+            this.body = null;
+            this.lazyBody = lazyBody;
+        }
+
+        public List<Stmt> body() {
+            return body;
         }
 
         @Override
@@ -131,10 +149,13 @@ public abstract class Stmt {
     public static class While extends Stmt {
         public final Expr condition;
         public final Stmt body;
+        // Linha do 'while' (ou do 'for'), para erros da própria volta do laço
+        public final int line;
 
-        public While(Expr condition, Stmt body) {
+        public While(Expr condition, Stmt body, int line) {
             this.condition = condition;
             this.body = body;
+            this.line = line;
         }
 
         @Override
@@ -160,4 +181,22 @@ public abstract class Stmt {
             return visitor.visitClassStmt(this);
         }
     }
-}
\ No newline at end of file
+
+    // 10. Importação de módulo
+    public static class Import extends Stmt {
+        public final Token keyword;
+        public final Token path;
+        // Preenchido ao ligar o programa aos módulos (Module.link); null até lá
+        Module module;
+
+        public Import(Token keyword, Token path) {
+            this.keyword = keyword;
+            this.path = path;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitImportStmt(this);
+        }
+    }
+}
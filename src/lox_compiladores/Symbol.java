@@ -0,0 +1,68 @@
+package lox_compiladores;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Nome de identificador canônico: uma instância por texto, com hash pré-calculado e igualdade por identidade
+public final class Symbol {
+    // Referências fracas: no daemon e no --batch a mesma JVM vê nomes de scripts sem fim, e um Symbol
+    // que nenhuma árvore, ambiente ou instância usa mais pode sumir. Quem ainda o tem continua com o mesmo
+    private static final ConcurrentHashMap<String, Entry> table = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Symbol> cleared = new ReferenceQueue<>();
+
+    static final Symbol THIS = intern("this");
+    static final Symbol SUPER = intern("super");
+    static final Symbol INIT = intern("init");
+
+    public final String name;
+    private final int hash;
+
+    private static final class Entry extends WeakReference<Symbol> {
+        final String name;
+
+        Entry(Symbol symbol) {
+            super(symbol, cleared);
+            this.name = symbol.name;
+        }
+    }
+
+    private Symbol(String name) {
+        this.name = name;
+        this.hash = name.hashCode();
+    }
+
+    public static Symbol intern(String name) {
+        Entry entry = table.get(name);
+        Symbol symbol = entry == null ? null : entry.get();
+        if (symbol != null) return symbol;
+
+        expunge();
+        Symbol fresh = new Symbol(name);
+        Entry added = new Entry(fresh);
+        while (true) {
+            Entry current = table.putIfAbsent(name, added);
+            if (current == null) return fresh;
+            Symbol existing = current.get();
+            if (existing != null) return existing;
+            // A entrada antiga foi coletada e ainda não saiu da tabela
+            if (table.replace(name, current, added)) return fresh;
+        }
+    }
+
+    // Tira da tabela as entradas cujo Symbol já foi coletado
+    private static void expunge() {
+        Entry entry;
+        while ((entry = (Entry) cleared.poll()) != null) table.remove(entry.name, entry);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -5,18 +5,66 @@ public class Token {
     public final String lexeme;
     public final Object literal;
     public final int line;
+    // Nome canônico para identificadores, this e super; null para os outros tokens
+    public final Symbol symbol;
 
     public Token(TokenType type, String lexeme, Object literal, int line) {
+        this(type, isName(type) ? Symbol.intern(lexeme) : null, lexeme, literal, line);
+    }
+
+    Token(TokenType type, Symbol symbol, String lexeme, Object literal, int line) {
         this.type = type;
-        this.lexeme = lexeme;
+        this.symbol = symbol;
+        // O lexema de um nome é o próprio texto do símbolo, sem cópias repetidas no heap
+        this.lexeme = symbol != null ? symbol.name : lexeme;
         this.literal = literal;
         this.line = line;
     }
 
+    // Token refeito para uma mensagem de erro: o lexema de um operador sai do tipo, o de um nome do símbolo
+    static Token at(TokenType type, int line) {
+        return new Token(type, null, spelling(type), null, line);
+    }
+
+    static Token at(Symbol name, int line) {
+        return new Token(TokenType.IDENTIFIER, name, name.name, null, line);
+    }
+
+    // Texto fixo de um tipo de token (operadores, pontuação e palavras-chave)
+    static String spelling(TokenType type) {
+        switch (type) {
+            case LEFT_PAREN: return "(";
+            case RIGHT_PAREN: return ")";
+            case LEFT_BRACE: return "{";
+            case RIGHT_BRACE: return "}";
+            case COMMA: return ",";
+            case DOT: return ".";
+            case MINUS: return "-";
+            case PLUS: return "+";
+            case SEMICOLON: return ";";
+            case SLASH: return "/";
+            case STAR: return "*";
+            case BANG: return "!";
+            case BANG_EQUAL: return "!=";
+            case EQUAL: return "=";
+            case EQUAL_EQUAL: return "==";
+            case GREATER: return ">";
+            case GREATER_EQUAL: return ">=";
+            case LESS: return "<";
+            case LESS_EQUAL: return "<=";
+            case IDENTIFIER: case STRING: case NUMBER: case EOF: return "";
+            default: return type.name().toLowerCase();
+        }
+    }
+
+    private static boolean isName(TokenType type) {
+        return type == TokenType.IDENTIFIER || type == TokenType.THIS || type == TokenType.SUPER;
+    }
+
     @Override
     public String toString() {
         return type + 
                (lexeme.isEmpty() ? "" : " '" + lexeme + "'") +
                (literal == null ? "" : " " + literal);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package lox_compiladores;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Fluxo de tokens compacto: arrays paralelos de primitivos em vez de um objeto Token por token.
+// Literais e nomes ficam numa tabela lateral; o Token só é montado quando o parser precisa dele.
+public final class TokenBuffer implements TokenStream {
+    // De onde recuperar o texto de um token que não tem lexema fixo (números, por exemplo)
+    interface Source {
+        String text(int offset, int length);
+    }
+
+    private static final TokenType[] types = TokenType.values();
+    private static final String[] fixedLexemes = new String[types.length];
+
+    static {
+        fixedLexemes[TokenType.LEFT_PAREN.ordinal()] = "(";
+        fixedLexemes[TokenType.RIGHT_PAREN.ordinal()] = ")";
+        fixedLexemes[TokenType.LEFT_BRACE.ordinal()] = "{";
+        fixedLexemes[TokenType.RIGHT_BRACE.ordinal()] = "}";
+        fixedLexemes[TokenType.COMMA.ordinal()] = ",";
+        fixedLexemes[TokenType.DOT.ordinal()] = ".";
+        fixedLexemes[TokenType.MINUS.ordinal()] = "-";
+        fixedLexemes[TokenType.PLUS.ordinal()] = "+";
+        fixedLexemes[TokenType.SEMICOLON.ordinal()] = ";";
+        fixedLexemes[TokenType.SLASH.ordinal()] = "/";
+        fixedLexemes[TokenType.STAR.ordinal()] = "*";
+        fixedLexemes[TokenType.BANG.ordinal()] = "!";
+        fixedLexemes[TokenType.BANG_EQUAL.ordinal()] = "!=";
+        fixedLexemes[TokenType.EQUAL.ordinal()] = "=";
+        fixedLexemes[TokenType.EQUAL_EQUAL.ordinal()] = "==";
+        fixedLexemes[TokenType.GREATER.ordinal()] = ">";
+        fixedLexemes[TokenType.GREATER_EQUAL.ordinal()] = ">=";
+        fixedLexemes[TokenType.LESS.ordinal()] = "<";
+        fixedLexemes[TokenType.LESS_EQUAL.ordinal()] = "<=";
+        fixedLexemes[TokenType.EOF.ordinal()] = "";
+        for (Map.Entry<String, TokenType> keyword : Scanner.keywords.entrySet()) {
+            fixedLexemes[keyword.getValue().ordinal()] = keyword.getKey();
+        }
+    }
+
+    private final Source source;
+    private byte[] kinds;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] lines;
+    // Índice na tabela lateral (literal ou Symbol), ou -1
+    private int[] extras;
+    private final List<Object> values = new ArrayList<>();
+    private int size = 0;
+
+    TokenBuffer(Source source) {
+        this(source, 256);
+    }
+
+    TokenBuffer(Source source, int capacity) {
+        this.source = source;
+        this.kinds = new byte[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.extras = new int[capacity];
+    }
+
+    // Adapta uma lista pronta de tokens; o "offset" de cada um é o próprio índice na lista
+    public static TokenBuffer of(List<Token> tokens) {
+        TokenBuffer buffer = new TokenBuffer((offset, length) -> tokens.get(offset).lexeme, Math.max(tokens.size(), 1));
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.symbol != null) {
+                buffer.addName(token.type, token.symbol, i, token.lexeme.length(), token.line);
+            } else if (token.literal != null) {
+                buffer.addLiteral(token.type, token.literal, i, token.lexeme.length(), token.line);
+            } else {
+                buffer.add(token.type, i, token.lexeme.length(), token.line);
+            }
+        }
+        return buffer;
+    }
+
+    void add(TokenType type, int offset, int length, int line) {
+        append(type, offset, length, line, -1);
+    }
+
+    void addName(TokenType type, Symbol name, int offset, int length, int line) {
+        values.add(name);
+        append(type, offset, length, line, values.size() - 1);
+    }
+
+    void addLiteral(TokenType type, Object literal, int offset, int length, int line) {
+        values.add(literal);
+        append(type, offset, length, line, values.size() - 1);
+    }
+
+    private void append(TokenType type, int offset, int length, int line, int extra) {
+        if (size == kinds.length) grow();
+        kinds[size] = (byte)type.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        lines[size] = line;
+        extras[size] = extra;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        extras = Arrays.copyOf(extras, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return types[kinds[index]];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public Symbol symbol(int index) {
+        TokenType type = type(index);
+        if (type != TokenType.IDENTIFIER && type != TokenType.THIS && type != TokenType.SUPER) return null;
+        return (Symbol)values.get(extras[index]);
+    }
+
+    public Object literal(int index) {
+        TokenType type = type(index);
+        if (type != TokenType.NUMBER && type != TokenType.STRING) return null;
+        return values.get(extras[index]);
+    }
+
+    public String lexeme(int index) {
+        TokenType type = type(index);
+        switch (type) {
+            case IDENTIFIER:
+            case THIS:
+            case SUPER:
+                return symbol(index).name;
+            case STRING:
+                return (String)literal(index);
+            case NUMBER:
+                return source.text(offsets[index], lengths[index]);
+            default:
+                return fixedLexemes[type.ordinal()];
+        }
+    }
+
+    // Monta um Token sob demanda (o parser só faz isso para tokens que ficam na AST ou em erros)
+    public Token token(int index) {
+        return new Token(type(index), symbol(index), lexeme(index), literal(index), line(index));
+    }
+
+    public List<Token> toList() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,8 @@
+package lox_compiladores;
+
+// O que o Parser precisa de uma sequência de tokens: acesso por índice ao tipo, ao literal e ao Token
+interface TokenStream {
+    TokenType type(int index);
+    Object literal(int index);
+    Token token(int index);
+}
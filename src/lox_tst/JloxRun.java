@@ -0,0 +1,95 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lox_compiladores.LoxContext;
+import lox_compiladores.LoxProgram;
+
+// Execução do jlox com código de saída, saída e erros: run numa JVM à parte, para testar o que termina em
+// System.exit ou pode travar, e program neste processo, por um LoxContext
+final class JloxRun {
+    final int exit;
+    final String out;
+    final String err;
+
+    private JloxRun(int exit, String out, String err) {
+        this.exit = exit;
+        this.out = out;
+        this.err = err;
+    }
+
+    static JloxRun program(String source) {
+        return program(source, null);
+    }
+
+    // 'setup' ajusta o contexto (limites, globais) antes de rodar
+    static JloxRun program(String source, Consumer<LoxContext> setup) {
+        LoxProgram program = LoxProgram.compile(source);
+        if (!program.compiled()) return new JloxRun(65, "", String.join("\n", program.errors()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        LoxContext context = program.newContext(new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        if (setup != null) setup.accept(context);
+        int exit = context.run();
+        return new JloxRun(exit, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+    }
+
+    static Path script(String source) throws IOException {
+        Path file = Files.createTempFile("jlox", ".lox");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, source);
+        return file;
+    }
+
+    static JloxRun run(long timeoutSeconds, String... args) throws IOException, InterruptedException {
+        Path out = Files.createTempFile("jlox", ".out");
+        Path err = Files.createTempFile("jlox", ".err");
+        try {
+            Process process = new ProcessBuilder(command(args))
+                    .redirectOutput(out.toFile())
+                    .redirectError(err.toFile())
+                    .start();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                fail("jlox " + String.join(" ", args) + " did not finish in " + timeoutSeconds + " s");
+            }
+            return new JloxRun(process.exitValue(), Files.readString(out, StandardCharsets.UTF_8),
+                    Files.readString(err, StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(out);
+            Files.deleteIfExists(err);
+        }
+    }
+
+    // jlox que fica rodando (o daemon, por exemplo); quem chama destrói o processo
+    static Process start(String... args) throws IOException {
+        return new ProcessBuilder(command(args)).redirectErrorStream(true).start();
+    }
+
+    private static List<String> command(String... args) {
+        String classPath = System.getProperty("java.class.path", "");
+        String modulePath = System.getProperty("jdk.module.path", "");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(modulePath.isEmpty() ? classPath : modulePath + File.pathSeparator + classPath);
+        command.add("lox_compiladores.Lox");
+        command.addAll(List.of(args));
+        return command;
+    }
+}
@@ -0,0 +1,59 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class allocationTest {
+
+    @Test
+    void budgetStopsAGrowingScriptWithALine() {
+        JloxRun run = JloxRun.program(
+                "class Node { init(next) { this.next = next; } }\n"
+                + "var list = nil;\n"
+                + "while (true) list = Node(list);\n",
+                context -> context.limitAllocations(1 << 20));
+        assertEquals(70, run.exit);
+        assertTrue(run.err.contains("Allocation budget exceeded."), run.err);
+        assertFalse(run.err.contains("[line 0]"), run.err);
+    }
+
+    // Conta o alocado, não o vivo: um laço que só cria lixo também esgota o orçamento, e o erro
+    // aponta para o bloco do laço mesmo fora de qualquer função
+    @Test
+    void garbageCountsAndTopLevelBlocksHaveALine() {
+        JloxRun run = JloxRun.program(
+                "var s = \"\";\n"
+                + "for (var i = 0; i < 100000; i = i + 1) {\n"
+                + "  s = \"x\" + \"y\";\n"
+                + "}\n",
+                context -> context.limitAllocations(1 << 20));
+        assertEquals(70, run.exit);
+        assertTrue(run.err.contains("Allocation budget exceeded.\n[line 2]"), run.err);
+    }
+
+    // Cada tarefa devolve o crédito que não gastou: vinte tarefas pequenas cabem em 1m
+    @Test
+    void shortTasksReturnUnusedCredit() {
+        JloxRun run = JloxRun.program(
+                "fun one() { var x = 1; return x; }\n"
+                + "var total = 0;\n"
+                + "for (var i = 0; i < 20; i = i + 1) total = total + join(spawn(one));\n"
+                + "print total;\n",
+                context -> context.limitAllocations(1 << 20));
+        assertEquals(0, run.exit, run.err);
+        assertEquals("20\n", run.out);
+    }
+
+    @Test
+    void parallelChunksReturnUnusedCredit() {
+        JloxRun run = JloxRun.program(
+                "fun id(i) { return i; }\n"
+                + "fun add(a, b) { return a + b; }\n"
+                + "for (var i = 0; i < 10; i = i + 1) parallelReduce(1000, id, add);\n"
+                + "print parallelReduce(1000, id, add);\n",
+                context -> context.limitAllocations(4 << 20));
+        assertEquals(0, run.exit, run.err);
+        assertEquals("499500\n", run.out);
+    }
+}
@@ -31,4 +31,42 @@ public class argsTest {
 	        assertTrue(output.contains("Usage: jlox [script]"));
 	   }
 
-}
\ No newline at end of file
+	    @Test
+	    void testParallelWithoutScripts() throws Exception {
+	        JloxRun run = JloxRun.run(30, "--parallel");
+	        assertEquals(64, run.exit);
+	        assertTrue(run.out.contains("Usage: jlox --parallel"));
+	    }
+
+	    @Test
+	    void testInvalidWorkerCount() throws Exception {
+	        for (String arg : new String[] {"--workers=x", "--workers=", "--workers=0"}) {
+	            JloxRun run = JloxRun.run(30, arg, "--batch=.");
+	            assertEquals(64, run.exit, arg);
+	            assertTrue(run.out.contains("Usage: jlox --workers="), arg);
+	            assertEquals("", run.err, arg);
+	        }
+	    }
+
+	    @Test
+	    void testInvalidFuel() throws Exception {
+	        for (String arg : new String[] {"--fuel=abc", "--fuel=", "--fuel=-5"}) {
+	            JloxRun run = JloxRun.run(30, arg, "--batch=.");
+	            assertEquals(64, run.exit, arg);
+	            assertTrue(run.out.contains("Usage: jlox --fuel="), arg);
+	            assertEquals("", run.err, arg);
+	        }
+	    }
+
+	    @Test
+	    void testInvalidAllocations() throws Exception {
+	        for (String arg : new String[] {"--allocations=", "--allocations=abc", "--allocations=k", "--allocations=0",
+	                "--allocations=99999999999g"}) {
+	            JloxRun run = JloxRun.run(30, arg, "--batch=.");
+	            assertEquals(64, run.exit, arg);
+	            assertTrue(run.out.contains("Usage: jlox --allocations="), arg);
+	            assertEquals("", run.err, arg);
+	        }
+	    }
+
+}
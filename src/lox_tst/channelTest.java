@@ -0,0 +1,130 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class channelTest {
+
+    // Espera ocupada de alguns milissegundos, para dar tempo de uma tarefa chegar onde vai estacionar
+    private static final String PAUSE = "fun pause() { var s = clock(); while (clock() - s < 0.05) {} }\n";
+
+    @Test
+    void boundedSendBlocksUntilReceive() {
+        JloxRun run = JloxRun.program(PAUSE
+                + "var ch = channel(1);\n"
+                + "var sent = 0;\n"
+                + "fun producer() { send(ch, 1); sent = 1; send(ch, 2); sent = 2; }\n"
+                + "var task = spawn(producer);\n"
+                + "while (sent < 1) {}\n"
+                + "pause();\n"
+                + "print sent;\n"
+                + "print receive(ch);\n"
+                + "join(task);\n"
+                + "print sent;\n"
+                + "print receive(ch);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("1\n1\n2\n2\n", run.out);
+    }
+
+    @Test
+    void manyProducersOneConsumer() {
+        JloxRun run = JloxRun.program(
+                "var ch = channel(4);\n"
+                + "fun producer() { for (var i = 0; i < 250; i = i + 1) send(ch, 1); }\n"
+                + "var a = spawn(producer); var b = spawn(producer); var c = spawn(producer); var d = spawn(producer);\n"
+                + "var total = 0;\n"
+                + "for (var i = 0; i < 1000; i = i + 1) total = total + receive(ch);\n"
+                + "join(a); join(b); join(c); join(d);\n"
+                + "print total;\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("1000\n", run.out);
+    }
+
+    @Test
+    void closeWakesParkedReceiver() {
+        JloxRun run = JloxRun.program(PAUSE
+                + "var ch = channel(nil);\n"
+                + "fun consumer() { return receive(ch); }\n"
+                + "var task = spawn(consumer);\n"
+                + "pause();\n"
+                + "close(ch);\n"
+                + "print join(task);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("nil\n", run.out);
+    }
+
+    @Test
+    void closeWakesParkedSenderWithError() {
+        JloxRun run = JloxRun.program(PAUSE
+                + "var ch = channel(1);\n"
+                + "fun producer() { send(ch, 1); send(ch, 2); return \"sent\"; }\n"
+                + "var task = spawn(producer);\n"
+                + "pause();\n"
+                + "close(ch);\n"
+                + "print join(task);\n"
+                + "print receive(ch);\n"
+                + "print receive(ch);\n");
+        assertEquals(70, run.exit);
+        assertEquals("nil\n1\nnil\n", run.out);
+        assertTrue(run.err.contains("Send on a closed channel."));
+    }
+
+    // Com os dois canais sempre prontos, select não pode escolher sempre o primeiro
+    @Test
+    void selectIsFairBetweenReadyChannels() {
+        JloxRun run = JloxRun.program(
+                "var a = channel(nil); var b = channel(nil);\n"
+                + "for (var i = 0; i < 1000; i = i + 1) { send(a, \"a\"); send(b, \"b\"); }\n"
+                + "var fromA = 0;\n"
+                + "for (var i = 0; i < 1000; i = i + 1) { if (select(a, b).value == \"a\") fromA = fromA + 1; }\n"
+                + "print fromA > 300 and fromA < 700;\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("true\n", run.out);
+    }
+
+    // Dois select parados nos mesmos canais e um valor em cada: o primeiro a acordar repassa o
+    // aviso do outro canal, senão o segundo fica parado para sempre
+    @Test
+    void selectPassesOnWakeups() {
+        JloxRun run = JloxRun.program(PAUSE
+                + "var a = channel(nil); var b = channel(nil);\n"
+                + "fun waiter() { return select(a, b).value; }\n"
+                + "var first = spawn(waiter); var second = spawn(waiter);\n"
+                + "pause();\n"
+                + "send(a, 1); send(b, 2);\n"
+                + "print join(first) + join(second);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("3\n", run.out);
+    }
+
+    @Test
+    void selectReturnsChannelAndNilWhenBothClosed() {
+        JloxRun run = JloxRun.program(
+                "var a = channel(nil); var b = channel(nil);\n"
+                + "send(b, \"x\");\n"
+                + "var s = select(a, b);\n"
+                + "print s.channel == b;\n"
+                + "print s.value;\n"
+                + "close(a); close(b);\n"
+                + "print select(a, b);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("true\nx\nnil\n", run.out);
+    }
+
+    // nil é um valor como outro qualquer: não se confunde com canal vazio nem com canal fechado
+    @Test
+    void nilValuesTravelThroughChannels() {
+        JloxRun run = JloxRun.program(
+                "var ch = channel(2);\n"
+                + "send(ch, nil); send(ch, 1);\n"
+                + "print receive(ch);\n"
+                + "print receive(ch);\n"
+                + "send(ch, nil);\n"
+                + "var s = select(ch, channel(nil));\n"
+                + "print s == nil;\n"
+                + "print s.value;\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("nil\n1\nfalse\nnil\n", run.out);
+    }
+}
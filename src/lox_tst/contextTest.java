@@ -0,0 +1,80 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+import lox_compiladores.LoxContext;
+import lox_compiladores.LoxProgram;
+
+public class contextTest {
+
+    // Um programa, vários contextos ao mesmo tempo: cada um com globais e classes próprias, passando
+    // pelos mesmos sítios super.metodo
+    @Test
+    void contextsOfOneProgramRunConcurrently() throws Exception {
+        LoxProgram program = LoxProgram.compile(
+                "class A { m(x) { return x + base; } }\n"
+                + "class B < A { m(x) { return super.m(x) * 2; } }\n"
+                + "var b = B();\n"
+                + "var sum = 0;\n"
+                + "for (var i = 0; i < 2000; i = i + 1) sum = sum + b.m(1);\n"
+                + "print sum;\n");
+        assertTrue(program.compiled());
+
+        List<Thread> threads = new ArrayList<>();
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            LoxContext context = program.newContext(new PrintStream(out, true, StandardCharsets.UTF_8), System.err);
+            context.define("base", (double) i);
+            outputs.add(out);
+            threads.add(new Thread(context::run));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals((1 + i) * 2 * 2000 + "\n", outputs.get(i).toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Tarefas também revezam: com a única vaga nas mãos do teste, a tarefa que conta para de contar.
+    // O programa principal, parado no receive, não segura vaga nenhuma
+    @Test
+    void tasksTakeCpuSlots() throws Exception {
+        LoxProgram program = LoxProgram.compile(
+                "var n = 0;\n"
+                + "fun count() { while (true) n = n + 1; }\n"
+                + "spawn(count);\n"
+                + "receive(channel(1));\n");
+        assertTrue(program.compiled());
+        Semaphore slots = new Semaphore(1, true);
+        LoxContext context = program.newContext(System.out, System.err);
+        context.shareCpu(slots);
+        Thread script = new Thread(context::run);
+        script.setDaemon(true);
+        script.start();
+
+        while (context.get("n") == null || (Double) context.get("n") < 1000) Thread.sleep(10);
+        slots.acquire();
+        try {
+            double before = (Double) context.get("n");
+            Thread.sleep(200);
+            double during = (Double) context.get("n");
+            assertEquals(before, during);
+        } finally {
+            slots.release();
+        }
+        double after = (Double) context.get("n");
+        Thread.sleep(200);
+        assertTrue((Double) context.get("n") > after);
+    }
+}
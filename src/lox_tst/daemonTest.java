@@ -0,0 +1,130 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStreamReader;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class daemonTest {
+
+    // Sobe um daemon num diretório temporário, roda o teste e derruba o processo
+    private interface WithDaemon {
+        void run(Path socket) throws Exception;
+    }
+
+    private static void withDaemon(WithDaemon test) throws Exception {
+        Path socket = Files.createTempDirectory("jlox").resolve("jlox.sock");
+        Process daemon = JloxRun.start("--daemon=" + socket, "--workers=1");
+        try {
+            BufferedReader log = new BufferedReader(new InputStreamReader(daemon.getInputStream()));
+            String banner = log.readLine();
+            assertNotNull(banner);
+            assertTrue(banner.contains("listening"), banner);
+            test.run(socket);
+        } finally {
+            daemon.destroyForcibly();
+            daemon.waitFor();
+        }
+    }
+
+    // Estouro de pilha no script é erro de execução: o cliente recebe a mensagem e o código 70,
+    // e o daemon continua atendendo
+    @Test
+    void stackOverflowIsARuntimeError() throws Exception {
+        withDaemon(socket -> {
+            Path deep = JloxRun.script("fun down(n) { return down(n + 1); }\ndown(0);\n");
+            JloxRun crashed = JloxRun.run(60, "--connect=" + socket, deep.toString());
+            assertEquals(70, crashed.exit);
+            assertTrue(crashed.err.contains("Stack overflow."), crashed.err);
+
+            Path fine = JloxRun.script("print \"still up\";\n");
+            JloxRun next = JloxRun.run(60, "--connect=" + socket, fine.toString());
+            assertEquals(0, next.exit, next.err);
+            assertEquals("still up\n", next.out);
+        });
+    }
+
+    // Um script parado num receive larga a vaga: com --workers=1 os pedidos seguintes ainda rodam
+    @Test
+    void blockedScriptDoesNotHoldTheSlot() throws Exception {
+        withDaemon(socket -> {
+            Path stuck = JloxRun.script("receive(channel(1));\n");
+            Process blocked = JloxRun.start("--connect=" + socket, stuck.toString());
+            try {
+                Thread.sleep(500);
+                Path fine = JloxRun.script("print \"served\";\n");
+                JloxRun next = JloxRun.run(30, "--connect=" + socket, fine.toString());
+                assertEquals(0, next.exit, next.err);
+                assertEquals("served\n", next.out);
+                assertTrue(blocked.isAlive());
+            } finally {
+                blocked.destroyForcibly();
+                blocked.waitFor();
+            }
+        });
+    }
+
+    // Com os workers todos ocupados, um cliente que conecta e não manda nada não trava o accept: os
+    // próximos recebem 'ocupado' na hora, e o calado é desconectado depois do prazo
+    @Test
+    void silentClientDoesNotBlockRefusals() throws Exception {
+        withDaemon(socket -> {
+            Path stuck = JloxRun.script("receive(channel(1));\n");
+            byte[] path = stuck.toString().getBytes(StandardCharsets.UTF_8);
+            List<SocketChannel> busy = new ArrayList<>();
+            try {
+                // --workers=1 aceita até 5 pedidos ao mesmo tempo
+                for (int i = 0; i < 5; i++) {
+                    SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+                    DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+                    request.writeInt(path.length);
+                    request.write(path);
+                    request.flush();
+                    busy.add(channel);
+                }
+                Thread.sleep(500);
+
+                try (SocketChannel silent = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                    Path fine = JloxRun.script("print 1;\n");
+                    JloxRun refused = JloxRun.run(30, "--connect=" + socket, fine.toString());
+                    assertEquals(75, refused.exit, refused.err);
+                    assertTrue(refused.err.contains("busy"), refused.err);
+
+                    assertEquals(-1, new DataInputStream(Channels.newInputStream(silent)).read());
+                }
+            } finally {
+                for (SocketChannel channel : busy) channel.close();
+            }
+        });
+    }
+
+    // Um tamanho de pedido absurdo fecha a conexão sem alocar nada
+    @Test
+    void invalidRequestLengthIsRejected() throws Exception {
+        withDaemon(socket -> {
+            for (int length : new int[] {-1, Integer.MAX_VALUE}) {
+                try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                    new DataOutputStream(Channels.newOutputStream(channel)).writeInt(length);
+                    assertEquals(-1, new DataInputStream(Channels.newInputStream(channel)).read());
+                }
+            }
+
+            Path fine = JloxRun.script("print 1 + 1;\n");
+            JloxRun next = JloxRun.run(60, "--connect=" + socket, fine.toString());
+            assertEquals(0, next.exit, next.err);
+            assertEquals("2\n", next.out);
+        });
+    }
+}
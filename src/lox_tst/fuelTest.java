@@ -0,0 +1,53 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class fuelTest {
+
+    @Test
+    void runawayLoopStopsWithALine() {
+        JloxRun run = JloxRun.program("var i = 0;\nwhile (true) i = i + 1;\n",
+                context -> context.limitFuel(50_000));
+        assertEquals(70, run.exit);
+        assertTrue(run.err.contains("Fuel exhausted."), run.err);
+        assertTrue(run.err.contains("[line 2]"), run.err);
+    }
+
+    // O erro da tarefa sai com a linha da função, não com "line 0"
+    @Test
+    void runawayTaskStopsWithTheFunctionLine() {
+        JloxRun run = JloxRun.program("\nfun spin() { while (true) {} }\nprint join(spawn(spin));\n",
+                context -> context.limitFuel(50_000));
+        assertEquals(70, run.exit);
+        assertEquals("nil\n", run.out);
+        assertTrue(run.err.contains("Fuel exhausted."), run.err);
+        assertTrue(run.err.contains("[line 2]"), run.err);
+    }
+
+    // Cada tarefa devolve o quantum que não gastou: dez tarefas triviais cabem em 50000
+    @Test
+    void shortTasksReturnUnusedFuel() {
+        JloxRun run = JloxRun.program(
+                "fun one() { return 1; }\n"
+                + "var total = 0;\n"
+                + "for (var i = 0; i < 10; i = i + 1) total = total + join(spawn(one));\n"
+                + "print total;\n",
+                context -> context.limitFuel(50_000));
+        assertEquals(0, run.exit, run.err);
+        assertEquals("10\n", run.out);
+    }
+
+    @Test
+    void parallelChunksReturnUnusedFuel() {
+        JloxRun run = JloxRun.program(
+                "fun id(i) { return i; }\n"
+                + "fun add(a, b) { return a + b; }\n"
+                + "for (var i = 0; i < 10; i = i + 1) parallelReduce(1000, id, add);\n"
+                + "print parallelReduce(1000, id, add);\n",
+                context -> context.limitFuel(100_000));
+        assertEquals(0, run.exit, run.err);
+        assertEquals("499500\n", run.out);
+    }
+}
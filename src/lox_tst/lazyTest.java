@@ -0,0 +1,91 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class lazyTest {
+
+    // Com --lazy o corpo só é montado na primeira chamada, mas a sintaxe é conferida antes de rodar
+    @Test
+    void syntaxErrorInUncalledBodyIsReported() throws Exception {
+        Path script = JloxRun.script("fun never() { var = ; }\nprint \"ran\";\n");
+
+        JloxRun eager = JloxRun.run(30, script.toString());
+        JloxRun lazy = JloxRun.run(30, "--lazy", script.toString());
+        assertEquals(65, lazy.exit);
+        assertEquals("", lazy.out);
+        assertEquals(eager.err, lazy.err);
+    }
+
+    // O reconhecedor dá as mesmas mensagens que o parser, inclusive nos corpos aninhados e com recuperação
+    @Test
+    void syntaxErrorsMatchEagerMode() throws Exception {
+        Path script = JloxRun.script("fun outer(a) {\n"
+                + "  (a) = 1;\n"
+                + "  fun inner(x y) { }\n"
+                + "  class C < { }\n"
+                + "  a.b = c = d;\n"
+                + "  f(1 2);\n"
+                + "}\n"
+                + "print \"ran\";\n");
+
+        JloxRun eager = JloxRun.run(30, script.toString());
+        JloxRun lazy = JloxRun.run(30, "--lazy", script.toString());
+        assertEquals(65, lazy.exit);
+        assertEquals(eager.err, lazy.err);
+    }
+
+    // Só a sintaxe é conferida antes: um erro de resolução sai na primeira chamada, e não sai se a
+    // função nunca for chamada
+    @Test
+    void resolutionErrorsWaitForTheFirstCall() throws Exception {
+        Path uncalled = JloxRun.script("fun f() { var a = 1; { var a = a; } }\nprint \"ran\";\n");
+        JloxRun quiet = JloxRun.run(30, "--lazy", uncalled.toString());
+        assertEquals(0, quiet.exit, quiet.err);
+        assertEquals("ran\n", quiet.out);
+
+        Path called = JloxRun.script("fun f() { var a = 1; { var a = a; } }\nprint \"ran\";\nf();\n");
+        JloxRun reported = JloxRun.run(30, "--lazy", called.toString());
+        assertEquals("ran\n", reported.out);
+        assertNotEquals(0, reported.exit);
+        assertTrue(reported.err.contains("Can't read local variable in its own initializer."), reported.err);
+        assertTrue(reported.err.contains("Could not compile function 'f'."), reported.err);
+    }
+
+    // O resolver guarda só os escopos vivos de quando o corpo foi adiado: nomes sombreados e nomes de
+    // blocos que já fecharam não podem confundir a resolução na primeira chamada
+    @Test
+    void deferredBodiesSeeTheScopesOfTheirDeclaration() throws Exception {
+        Path script = JloxRun.script("{ var gone = \"closed block\"; }\n"
+                + "var r = nil;\n"
+                + "var gone = \"global\";\n"
+                + "{\n"
+                + "  var a = \"outer\";\n"
+                + "  {\n"
+                + "    var a = \"inner\";\n"
+                + "    fun f() { fun g() { return a + \" \" + gone; } return g(); }\n"
+                + "    r = f;\n"
+                + "  }\n"
+                + "}\n"
+                + "print r();\n");
+
+        JloxRun eager = JloxRun.run(30, script.toString());
+        JloxRun lazy = JloxRun.run(30, "--lazy", script.toString());
+        assertEquals(0, lazy.exit, lazy.err);
+        assertEquals("inner global\n", lazy.out);
+        assertEquals(eager.out, lazy.out);
+    }
+
+    @Test
+    void lazyBodyRunsOnFirstCall() throws Exception {
+        Path script = JloxRun.script("fun add(a, b) { fun twice(x) { return x * 2; } return twice(a) + b; }\n"
+                + "print add(1, 2);\n");
+
+        JloxRun lazy = JloxRun.run(30, "--lazy", script.toString());
+        assertEquals(0, lazy.exit);
+        assertEquals("4", lazy.out.trim());
+    }
+}
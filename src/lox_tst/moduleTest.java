@@ -0,0 +1,41 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import lox_compiladores.LoxProgram;
+
+public class moduleTest {
+
+    // O módulo fica em cache no processo; cada programa que o importa tem que ver os erros dele
+    @Test
+    void brokenModuleErrorsReachEveryImporter() throws Exception {
+        Path directory = Files.createTempDirectory("jlox");
+        Files.writeString(directory.resolve("broken.lox"), "var x = ;\n");
+
+        LoxProgram first = LoxProgram.compile("import \"broken.lox\";\nprint 1;\n", directory);
+        LoxProgram second = LoxProgram.compile("import \"broken.lox\";\nprint 2;\n", directory);
+        assertFalse(first.compiled());
+        assertFalse(second.compiled());
+        assertEquals(1, first.errors().size());
+        assertEquals(first.errors(), second.errors());
+        assertTrue(second.errors().get(0).contains("Expect expression."));
+    }
+
+    @Test
+    void moduleWarningsAreNotRepeatedAtRuntime() throws Exception {
+        Path directory = Files.createTempDirectory("jlox");
+        Files.writeString(directory.resolve("warn.lox"), "var w = \"a\" + 1;\n");
+        Path script = directory.resolve("main.lox");
+        Files.writeString(script, "import \"warn.lox\";\nprint \"done\";\n");
+
+        JloxRun run = JloxRun.run(30, script.toString());
+        String output = run.out + run.err;
+        assertTrue(output.contains("Type mismatch"));
+        assertEquals(output.indexOf("Type mismatch"), output.lastIndexOf("Type mismatch"));
+    }
+}
@@ -0,0 +1,75 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class parallelTest {
+
+    @Test
+    void parallelMapKeepsResultsByIndex() {
+        JloxRun run = JloxRun.program(
+                "fun square(i) { return i * i; }\n"
+                + "var results = parallelMap(1000, square);\n"
+                + "print results(0);\n"
+                + "print results(999);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("0\n998001\n", run.out);
+    }
+
+    @Test
+    void parallelReduceCombinesEveryIndex() {
+        JloxRun run = JloxRun.program(
+                "fun id(i) { return i; }\n"
+                + "fun add(a, b) { return a + b; }\n"
+                + "print parallelReduce(1000, id, add);\n"
+                + "print parallelReduce(0, id, add);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("499500\nnil\n", run.out);
+    }
+
+    @Test
+    void parallelForCallsEveryIndexOnce() {
+        JloxRun run = JloxRun.program(
+                "var ch = channel(nil);\n"
+                + "fun each(i) { send(ch, i); }\n"
+                + "parallelFor(1000, each);\n"
+                + "close(ch);\n"
+                + "var sum = 0; var count = 0;\n"
+                + "for (var v = receive(ch); v != nil; v = receive(ch)) { sum = sum + v; count = count + 1; }\n"
+                + "print count;\n"
+                + "print sum;\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("1000\n499500\n", run.out);
+    }
+
+    // Como no spawn, todos os pedaços veem as mesmas variáveis: globais e locais capturados de funções de fora
+    @Test
+    void callbackSharesGlobalsAndCapturedLocals() {
+        JloxRun run = JloxRun.program(
+                "var touched = false;\n"
+                + "fun mark(i) { touched = true; }\n"
+                + "parallelFor(1, mark);\n"
+                + "print touched;\n"
+                + "fun outer() {\n"
+                + "  var seen = false;\n"
+                + "  fun see(i) { if (i == 7) seen = true; }\n"
+                + "  parallelFor(10, see);\n"
+                + "  return seen;\n"
+                + "}\n"
+                + "print outer();\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("true\ntrue\n", run.out);
+    }
+
+    @Test
+    void callbackErrorStopsTheScript() {
+        JloxRun run = JloxRun.program(
+                "fun bad(i) { return i + nil; }\n"
+                + "parallelMap(10, bad);\n"
+                + "print \"unreachable\";\n");
+        assertEquals(70, run.exit);
+        assertEquals("", run.out);
+        assertTrue(run.err.contains("Operands must be"));
+    }
+}
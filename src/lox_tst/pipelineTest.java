@@ -0,0 +1,23 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class pipelineTest {
+
+    // O parser morria com a fila de pedaços cheia e o scanner ficava parado nela para sempre
+    @Test
+    void parserFailureDoesNotHang() throws Exception {
+        StringBuilder source = new StringBuilder("var x = ");
+        source.append("(".repeat(1_000_000)).append("1").append(")".repeat(1_000_000)).append(";\n");
+        for (int i = 0; i < 200_000; i++) source.append("var v").append(i).append(" = ").append(i).append(";\n");
+        Path script = JloxRun.script(source.toString());
+
+        JloxRun run = JloxRun.run(60, "--pipeline", script.toString());
+        assertNotEquals(0, run.exit);
+        assertTrue(run.err.contains("StackOverflowError"));
+    }
+}
@@ -0,0 +1,90 @@
+package lox_tst;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class taskTest {
+
+    @Test
+    void joinReturnsWhatTheFunctionReturned() {
+        JloxRun run = JloxRun.program(
+                "fun work() { var sum = 0; for (var i = 1; i <= 100; i = i + 1) sum = sum + i; return sum; }\n"
+                + "var a = spawn(work);\n"
+                + "var b = spawn(work);\n"
+                + "print join(a) + join(b);\n"
+                + "print type(a);\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("10100\ntask\n", run.out);
+    }
+
+    @Test
+    void tasksSeeTheSameGlobals() {
+        JloxRun run = JloxRun.program(
+                "class Box { init() { this.value = 0; } }\n"
+                + "var box = Box();\n"
+                + "fun fill() { box.value = 42; }\n"
+                + "join(spawn(fill));\n"
+                + "print box.value;\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("42\n", run.out);
+    }
+
+    // O erro fica na tarefa: sai nos diagnósticos, join devolve nil e o programa continua
+    @Test
+    void taskErrorIsReportedAndJoinReturnsNil() {
+        JloxRun run = JloxRun.program(
+                "fun fail() { return 1 + nil; }\n"
+                + "print join(spawn(fail));\n"
+                + "print \"after\";\n");
+        assertEquals(70, run.exit);
+        assertEquals("nil\nafter\n", run.out);
+        assertTrue(run.err.contains("Operands must be"));
+    }
+
+    @Test
+    void runWaitsForTasksThatWereNotJoined() {
+        JloxRun run = JloxRun.program(
+                "fun late() { var s = clock(); while (clock() - s < 0.05) {} print \"late\"; }\n"
+                + "spawn(late);\n"
+                + "print \"main\";\n");
+        assertEquals(0, run.exit, run.err);
+        assertEquals("main\nlate\n", run.out);
+    }
+
+    // Com --parallel cada arquivo também espera as tarefas que criou antes de mostrar a saída
+    @Test
+    void parallelModeWaitsForTasks() throws Exception {
+        Path done = JloxRun.script(
+                "fun w() { var i = 0; while (i < 200000) i = i + 1; print \"task done\"; }\n"
+                + "spawn(w);\n"
+                + "print \"main done\";\n");
+        Path failed = JloxRun.script("var x = nil;\nfun f() { return x.y; }\nspawn(f);\n");
+
+        JloxRun run = JloxRun.run(30, "--parallel", done.toString(), failed.toString());
+        assertEquals(70, run.exit, run.err);
+        assertEquals("main done\ntask done\n", run.out);
+        assertTrue(run.err.contains("Only instances have properties."), run.err);
+    }
+
+    // Com --parallel os erros das tarefas são acumulados até o fim do arquivo; nenhum se perde
+    @Test
+    void parallelModeKeepsEveryTaskError() throws Exception {
+        Path failing = JloxRun.script("var x = nil;\n"
+                + "fun f() { return x.y; }\n"
+                + "for (var i = 0; i < 200; i = i + 1) spawn(f);\n");
+
+        JloxRun run = JloxRun.run(30, "--parallel", failing.toString());
+        assertEquals(70, run.exit);
+        assertEquals(200, run.err.split("Only instances have properties.", -1).length - 1, run.err);
+    }
+
+    @Test
+    void spawnRejectsFunctionsWithParameters() {
+        JloxRun run = JloxRun.program("fun f(x) { return x; }\nspawn(f);\n");
+        assertEquals(70, run.exit);
+        assertTrue(run.err.contains("Can only spawn functions that take no arguments."));
+    }
+}
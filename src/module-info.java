@@ -6,4 +6,6 @@
  */
 module lox_compiladores {
 	requires org.junit.jupiter.api;
+	requires jdk.jfr;
+	exports lox_compiladores;
 }
\ No newline at end of file